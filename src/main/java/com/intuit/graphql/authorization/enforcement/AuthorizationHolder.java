@@ -1,32 +1,423 @@
 package com.intuit.graphql.authorization.enforcement;
 
+import com.intuit.graphql.authorization.rules.LazyScopeToTypeMap;
+import com.intuit.graphql.authorization.util.BoundedCache;
+import com.intuit.graphql.authorization.util.CacheStats;
+import com.intuit.graphql.authorization.util.ScopeSet;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLInterfaceType;
+import graphql.schema.GraphQLNamedOutputType;
+import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
+import graphql.schema.transform.FieldVisibilitySchemaTransformation;
+import graphql.schema.transform.VisibleFieldPredicateEnvironment;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
-import org.apache.commons.collections4.SetUtils;
+import java.util.stream.Stream;
 
 
 public class AuthorizationHolder {
 
+  public static final int DEFAULT_PERMISSIONS_VERIFIER_CACHE_SIZE = 1024;
+
+  public static final int DEFAULT_REDACTED_SCHEMA_CACHE_SIZE = 16;
+
+  private static final int MAX_COMPILED_SCHEMAS = 4;
+
   private final Map<String, Map<String, Set<String>>> scopeToTypeMap;
+  private final PolicyEngine policyEngine;
+  private final BoundedCache<VerifierKey, PermissionVerifier> permissionsVerifierCache;
+  private final BoundedCache<ScopeSetKey, PermissionVerifier> scopeSetVerifierCache;
+  private final BoundedCache<GrantsKey, PermissionVerifier> verifiersByGrants;
+  private final BoundedCache<PermissionVerifier, GraphQLSchema> redactedSchemaCache;
+  private final BoundedCache<GraphQLSchema, BitSetPolicy> bitSetPolicies = new BoundedCache<>(MAX_COMPILED_SCHEMAS);
 
   public AuthorizationHolder(Map<String, Map<String, Set<String>>> scopeToType) {
-    this.scopeToTypeMap = Collections.unmodifiableMap(scopeToType);
+    this(scopeToType, DEFAULT_PERMISSIONS_VERIFIER_CACHE_SIZE);
+  }
+
+  /**
+   * @param scopeToType compiled rules by scope
+   * @param permissionsVerifierCacheSize maximum number of scope combinations whose verifier is kept, 0 disables
+   * caching
+   */
+  public AuthorizationHolder(Map<String, Map<String, Set<String>>> scopeToType, int permissionsVerifierCacheSize) {
+    this(scopeToType, permissionsVerifierCacheSize, PolicyEngine.TYPE_FIELD_MAP);
+  }
+
+  /**
+   * @param scopeToType compiled rules by scope
+   * @param permissionsVerifierCacheSize maximum number of scope combinations whose verifier is kept, 0 disables
+   * caching
+   * @param policyEngine representation of the rules used by {@link #getPermissionVerifier(Set, GraphQLSchema)}
+   */
+  public AuthorizationHolder(Map<String, Map<String, Set<String>>> scopeToType, int permissionsVerifierCacheSize,
+      PolicyEngine policyEngine) {
+    this(scopeToType, permissionsVerifierCacheSize, policyEngine, DEFAULT_REDACTED_SCHEMA_CACHE_SIZE);
+  }
+
+  /**
+   * @param scopeToType compiled rules by scope
+   * @param permissionsVerifierCacheSize maximum number of scope combinations whose verifier is kept, 0 disables
+   * caching
+   * @param policyEngine representation of the rules used by {@link #getPermissionVerifier(Set, GraphQLSchema)}
+   * @param redactedSchemaCacheSize maximum number of scope combinations whose redacted schema is kept, 0 disables
+   * caching
+   */
+  public AuthorizationHolder(Map<String, Map<String, Set<String>>> scopeToType, int permissionsVerifierCacheSize,
+      PolicyEngine policyEngine, int redactedSchemaCacheSize) {
+    this.scopeToTypeMap = scopeToType instanceof LazyScopeToTypeMap
+        ? scopeToType : Collections.unmodifiableMap(scopeToType);
+    this.permissionsVerifierCache = new BoundedCache<>(permissionsVerifierCacheSize);
+    this.scopeSetVerifierCache = new BoundedCache<>(permissionsVerifierCacheSize);
+    this.verifiersByGrants = new BoundedCache<>(permissionsVerifierCacheSize);
+    this.redactedSchemaCache = new BoundedCache<>(redactedSchemaCacheSize);
+    this.policyEngine = Objects.requireNonNull(policyEngine);
   }
 
+  /**
+   * Returns a verifier backed by merged type and field name maps, regardless of the configured {@link PolicyEngine}.
+   *
+   * @param scopes scopes of the request
+   * @param schema the graphql schema
+   * @return verifier for the given scopes
+   */
   public TypeFieldPermissionVerifier getPermissionsVerifier(Set<String> scopes, GraphQLSchema schema) {
-    return new TypeFieldPermissionVerifier(schema,
-        Collections.unmodifiableMap(
-            scopes.stream()
-                .map(scopeToTypeMap::get)
-                .filter(Objects::nonNull)
-                .flatMap(map -> map.entrySet().stream())
-                .collect(Collectors.toMap(Entry::getKey, Entry::getValue,
-                    (oldSet, newSet) -> SetUtils.union(oldSet, newSet)
-                ))));
+    VerifierKey key = new VerifierKey(schema, canonicalize(scopes));
+    if (policyEngine == PolicyEngine.TYPE_FIELD_MAP) {
+      return (TypeFieldPermissionVerifier) permissionsVerifierCache.get(key,
+          k -> share(createPermissionsVerifier(k)));
+    }
+    return createPermissionsVerifier(key);
+  }
+
+  /**
+   * Returns a verifier for the configured {@link PolicyEngine}.
+   *
+   * @param scopes scopes of the request
+   * @param schema the graphql schema
+   * @return verifier for the given scopes
+   */
+  public PermissionVerifier getPermissionVerifier(Set<String> scopes, GraphQLSchema schema) {
+    VerifierKey key = new VerifierKey(schema, canonicalize(scopes));
+    if (policyEngine == PolicyEngine.BITSET) {
+      return permissionsVerifierCache.get(key, k -> share(createBitSetPermissionVerifier(k)));
+    }
+    return permissionsVerifierCache.get(key, k -> share(createPermissionsVerifier(k)));
+  }
+
+  /**
+   * Compiles the rules for the given schema ahead of the first request, if the configured {@link PolicyEngine} needs
+   * a per-schema representation.
+   *
+   * @param schema the graphql schema
+   */
+  public void prepare(GraphQLSchema schema) {
+    if (policyEngine == PolicyEngine.BITSET) {
+      bitSetPolicy(schema);
+    }
+  }
+
+  /**
+   * Returns a verifier for the configured {@link PolicyEngine}. Verifiers are cached by {@link ScopeSet}, so repeated
+   * lookups with the same interned handle do not hash the scope strings; sets that are not interned are compared by
+   * their scopes.
+   *
+   * @param scopeSet scopes of the request
+   * @param schema the graphql schema
+   * @return verifier for the given scopes
+   */
+  public PermissionVerifier getPermissionVerifier(ScopeSet scopeSet, GraphQLSchema schema) {
+    return scopeSetVerifierCache.get(new ScopeSetKey(schema, scopeSet),
+        key -> getPermissionVerifier(key.scopeSet.getScopes(), key.schema));
+  }
+
+  /**
+   * Returns a copy of the schema holding only what the given scopes may see: fields of object types that are not
+   * permitted are removed, and so are the types no longer reachable from the remaining fields. A field of an interface
+   * is removed when none of its implementations permits it, and a denied object field is kept when an interface of the
+   * object still declares it, so that every object still implements its interfaces; such fields stay denied at
+   * execution. Input types and introspection types are kept as they are. Schemas are cached per scope combination that
+   * grants distinct permissions.
+   *
+   * @param scopes scopes of the request
+   * @param schema the graphql schema
+   * @return schema view for the given scopes
+   * @throws IllegalArgumentException if the scopes are not permitted to any field of the query type
+   */
+  public GraphQLSchema getRedactedSchema(Set<String> scopes, GraphQLSchema schema) {
+    // verifiers are shared by scope combinations with the same grants and do not override equals, so the lookup
+    // neither hashes nor rebuilds the merged grants
+    PermissionVerifier verifier = getPermissionVerifier(scopes, schema);
+    return redactedSchemaCache.get(verifier, key -> createRedactedSchema(schema, scopes, verifier));
+  }
+
+  public CacheStats getRedactedSchemaCacheStats() {
+    return redactedSchemaCache.stats();
+  }
+
+  public PolicyEngine getPolicyEngine() {
+    return policyEngine;
+  }
+
+  public CacheStats getPermissionsVerifierCacheStats() {
+    CacheStats byScopeSet = scopeSetVerifierCache.stats();
+    CacheStats byScopes = permissionsVerifierCache.stats();
+    return new CacheStats(byScopeSet.getHitCount() + byScopes.getHitCount(), byScopes.getMissCount(),
+        byScopeSet.getEvictionCount() + byScopes.getEvictionCount());
+  }
+
+  /*
+   * Scopes without rules do not contribute permissions, so they are left out of the key. The remaining scopes are
+   * sorted so that every ordering of the same scopes maps to the same verifier.
+   */
+  private String[] canonicalize(Set<String> scopes) {
+    return scopes.stream()
+        .filter(scopeToTypeMap::containsKey)
+        .sorted()
+        .toArray(String[]::new);
+  }
+
+  /*
+   * An object type must have at least one field, so mutation and subscription types without permitted fields are
+   * dropped before the fields are filtered. The schema elements seen by the predicate are copies made by the
+   * transformation, so the verifier has to match types and fields by name.
+   */
+  private GraphQLSchema createRedactedSchema(GraphQLSchema originalSchema, Set<String> scopes,
+      PermissionVerifier verifier) {
+    if (!hasPermittedField(verifier, originalSchema.getQueryType())) {
+      throw new IllegalArgumentException("Scopes " + Arrays.toString(canonicalize(scopes))
+          + " are not permitted to any field of the query type");
+    }
+    Set<GraphQLObjectType> deniedRootTypes = Stream.of(originalSchema.getMutationType(), originalSchema.getSubscriptionType())
+        .filter(rootType -> rootType != null && !hasPermittedField(verifier, rootType))
+        .collect(Collectors.toSet());
+    GraphQLSchema schema = deniedRootTypes.isEmpty() ? originalSchema : originalSchema.transform(builder -> builder
+        .mutation(deniedRootTypes.contains(originalSchema.getMutationType()) ? null : originalSchema.getMutationType())
+        .subscription(deniedRootTypes.contains(originalSchema.getSubscriptionType())
+            ? null : originalSchema.getSubscriptionType())
+        .clearAdditionalTypes()
+        .additionalTypes(originalSchema.getAdditionalTypes().stream()
+            .filter(type -> !deniedRootTypes.contains(type))
+            .collect(Collectors.toSet())));
+    Map<String, Set<String>> visibleFields = getVisibleFields(verifier, schema);
+    return new FieldVisibilitySchemaTransformation(environment -> isVisible(visibleFields, environment)).apply(schema);
+  }
+
+  /*
+   * Visible field names by object and interface type. An interface keeps the fields permitted on any of its
+   * implementations, plus the fields of the interfaces it implements itself. An interface without any such field keeps
+   * all of its fields, since a type needs at least one. An object keeps its permitted fields plus the fields its
+   * interfaces kept.
+   */
+  private static Map<String, Set<String>> getVisibleFields(PermissionVerifier verifier, GraphQLSchema schema) {
+    Map<String, Set<String>> visibleFields = new HashMap<>();
+    List<GraphQLInterfaceType> interfaceTypes = schema.getAllTypesAsList().stream()
+        .filter(GraphQLInterfaceType.class::isInstance)
+        .map(GraphQLInterfaceType.class::cast)
+        .collect(Collectors.toList());
+    for (GraphQLInterfaceType interfaceType : interfaceTypes) {
+      Set<String> fields = schema.getImplementations(interfaceType).stream()
+          .flatMap(objectType -> objectType.getFieldDefinitions().stream()
+              .filter(fieldDefinition -> interfaceType.getFieldDefinition(fieldDefinition.getName()) != null)
+              .filter(fieldDefinition -> verifier.isPermitted(objectType, fieldDefinition)))
+          .map(GraphQLFieldDefinition::getName)
+          .collect(Collectors.toCollection(HashSet::new));
+      if (fields.isEmpty()) {
+        interfaceType.getFieldDefinitions().forEach(fieldDefinition -> fields.add(fieldDefinition.getName()));
+      }
+      visibleFields.put(interfaceType.getName(), fields);
+    }
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (GraphQLInterfaceType interfaceType : interfaceTypes) {
+        for (GraphQLNamedOutputType implemented : interfaceType.getInterfaces()) {
+          changed |= visibleFields.get(interfaceType.getName()).addAll(visibleFields.get(implemented.getName()));
+        }
+      }
+    }
+    for (GraphQLObjectType objectType : schema.getAllTypesAsList().stream()
+        .filter(GraphQLObjectType.class::isInstance)
+        .map(GraphQLObjectType.class::cast)
+        .collect(Collectors.toList())) {
+      Set<String> fields = objectType.getFieldDefinitions().stream()
+          .filter(fieldDefinition -> verifier.isPermitted(objectType, fieldDefinition))
+          .map(GraphQLFieldDefinition::getName)
+          .collect(Collectors.toCollection(HashSet::new));
+      objectType.getInterfaces().forEach(implemented -> fields.addAll(visibleFields.get(implemented.getName())));
+      visibleFields.put(objectType.getName(), fields);
+    }
+    return visibleFields;
+  }
+
+  private static boolean hasPermittedField(PermissionVerifier verifier, GraphQLObjectType objectType) {
+    return objectType.getFieldDefinitions().stream()
+        .anyMatch(fieldDefinition -> verifier.isPermitted(objectType, fieldDefinition));
+  }
+
+  private static boolean isVisible(Map<String, Set<String>> visibleFields,
+      VisibleFieldPredicateEnvironment environment) {
+    if (environment.getParentElement() instanceof GraphQLFieldsContainer
+        && environment.getSchemaElement() instanceof GraphQLFieldDefinition) {
+      Set<String> fields = visibleFields.get(((GraphQLFieldsContainer) environment.getParentElement()).getName());
+      return fields == null || fields.contains(((GraphQLFieldDefinition) environment.getSchemaElement()).getName());
+    }
+    return true;
+  }
+
+  /*
+   * Scope combinations granting the same permissions, e.g. because one scope's rules are contained in another's, get
+   * the same verifier, so that caches keyed by verifier, like the filtered introspection results, are shared by them.
+   */
+  private PermissionVerifier share(PermissionVerifier verifier) {
+    if (verifier instanceof BitSetPermissionVerifier) {
+      BitSetPermissionVerifier bitSetVerifier = (BitSetPermissionVerifier) verifier;
+      return verifiersByGrants.get(new GrantsKey(bitSetVerifier.getSchema(), bitSetVerifier.getGrants()),
+          key -> verifier);
+    }
+    TypeFieldPermissionVerifier typeFieldVerifier = (TypeFieldPermissionVerifier) verifier;
+    return verifiersByGrants.get(new GrantsKey(typeFieldVerifier.getSchema(), typeFieldVerifier.getTypeToFieldsMap()),
+        key -> verifier);
+  }
+
+  private TypeFieldPermissionVerifier createPermissionsVerifier(VerifierKey key) {
+    return new TypeFieldPermissionVerifier(key.schema, Collections.unmodifiableMap(mergeTypeToFields(key.scopes)));
+  }
+
+  /*
+   * Types granted by a single scope share that scope's field set. Types granted by several scopes get one flat set
+   * holding all of their fields, so a lookup costs the same however many scopes granted the type.
+   */
+  private Map<String, Set<String>> mergeTypeToFields(String[] scopes) {
+    Map<String, Set<String>> typeToFields = new HashMap<>();
+    Set<String> materializedTypes = new HashSet<>();
+    for (String scope : scopes) {
+      Map<String, Set<String>> scopeTypeToFields = scopeToTypeMap.get(scope);
+      if (scopeTypeToFields == null) {
+        continue;
+      }
+      scopeTypeToFields.forEach((type, fields) -> typeToFields.merge(type, fields, (mergedFields, newFields) -> {
+        if (materializedTypes.add(type)) {
+          Set<String> materialized = new HashSet<>(mergedFields);
+          materialized.addAll(newFields);
+          return materialized;
+        }
+        mergedFields.addAll(newFields);
+        return mergedFields;
+      }));
+    }
+    return typeToFields;
+  }
+
+  private BitSetPermissionVerifier createBitSetPermissionVerifier(VerifierKey key) {
+    return bitSetPolicy(key.schema).getPermissionVerifier(key.scopes);
+  }
+
+  private BitSetPolicy bitSetPolicy(GraphQLSchema schema) {
+    if (scopeToTypeMap instanceof LazyScopeToTypeMap) {
+      int maximumSize = ((LazyScopeToTypeMap) scopeToTypeMap).getMaximumSize();
+      return bitSetPolicies.get(schema, s -> BitSetPolicy.compileLazily(s, scopeToTypeMap, maximumSize));
+    }
+    return bitSetPolicies.get(schema, s -> BitSetPolicy.compile(s, scopeToTypeMap));
+  }
+
+  private static final class VerifierKey {
+
+    private final GraphQLSchema schema;
+    private final String[] scopes;
+    private final int hash;
+
+    private VerifierKey(GraphQLSchema schema, String[] scopes) {
+      this.schema = schema;
+      this.scopes = scopes;
+      this.hash = 31 * System.identityHashCode(schema) + Arrays.hashCode(scopes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof VerifierKey)) {
+        return false;
+      }
+      VerifierKey that = (VerifierKey) o;
+      return schema == that.schema && Arrays.equals(scopes, that.scopes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /*
+   * Merged grants of a scope combination, i.e. a type to fields map or compiled bit arrays, compared by value.
+   */
+  private static final class GrantsKey {
+
+    private final GraphQLSchema schema;
+    private final Object grants;
+    private final int hash;
+
+    private GrantsKey(GraphQLSchema schema, Object grants) {
+      this.schema = schema;
+      this.grants = grants;
+      this.hash = 31 * System.identityHashCode(schema) + grants.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof GrantsKey)) {
+        return false;
+      }
+      GrantsKey that = (GrantsKey) o;
+      return schema == that.schema && grants.equals(that.grants);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private static final class ScopeSetKey {
+
+    private final GraphQLSchema schema;
+    private final ScopeSet scopeSet;
+
+    private ScopeSetKey(GraphQLSchema schema, ScopeSet scopeSet) {
+      this.schema = schema;
+      this.scopeSet = scopeSet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ScopeSetKey)) {
+        return false;
+      }
+      ScopeSetKey that = (ScopeSetKey) o;
+      return schema == that.schema && scopeSet.equals(that.scopeSet);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(schema) + scopeSet.hashCode();
+    }
   }
 }
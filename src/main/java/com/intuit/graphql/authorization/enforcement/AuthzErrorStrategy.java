@@ -0,0 +1,27 @@
+package com.intuit.graphql.authorization.enforcement;
+
+/**
+ * Selects how fields redacted because the rules do not permit them are reported in the execution result. Errors
+ * returned by an {@link com.intuit.graphql.authorization.extension.AuthorizationExtension} are always added as they
+ * are.
+ */
+public enum AuthzErrorStrategy {
+
+  /**
+   * One error per redacted field, with the message of
+   * {@link com.intuit.graphql.authorization.util.ScopeProvider#getErrorMessage(RedactionContext)}.
+   */
+  PER_FIELD,
+
+  /**
+   * A single error listing the coordinates of all redacted fields, with the locations of every redacted field and the
+   * coordinates also available in its {@code deniedFields} extension.
+   */
+  AGGREGATED,
+
+  /**
+   * No errors. The coordinates and count of the redacted fields are added to the {@code authorization} entry of the
+   * result extensions.
+   */
+  SILENT
+}
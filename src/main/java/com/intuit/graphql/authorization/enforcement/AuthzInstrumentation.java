@@ -2,35 +2,65 @@ package com.intuit.graphql.authorization.enforcement;
 
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 
+import com.intuit.graphql.authorization.config.AuthzClient;
 import com.intuit.graphql.authorization.config.AuthzClientConfiguration;
 import com.intuit.graphql.authorization.extension.AuthorizationExtension;
 import com.intuit.graphql.authorization.extension.AuthorizationExtensionProvider;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
+import com.intuit.graphql.authorization.extension.BatchAuthorizationExtension;
 import com.intuit.graphql.authorization.extension.DefaultAuthorizationExtensionProvider;
 import com.intuit.graphql.authorization.rules.AuthorizationHolderFactory;
+import com.intuit.graphql.authorization.rules.CompiledRules;
+import com.intuit.graphql.authorization.rules.CompiledRulesSnapshotFile;
 import com.intuit.graphql.authorization.rules.QueryRuleParser;
+import com.intuit.graphql.authorization.util.BoundedCache;
+import com.intuit.graphql.authorization.util.CacheStats;
 import com.intuit.graphql.authorization.util.GraphQLUtil;
 import com.intuit.graphql.authorization.util.ScopeProvider;
+import com.intuit.graphql.authorization.util.ScopeSet;
+import graphql.ErrorType;
 import graphql.ExecutionResult;
 import graphql.ExecutionResultImpl;
 import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.ParseAndValidate;
 import graphql.analysis.QueryTransformer;
+import graphql.analysis.QueryTraverser;
+import graphql.execution.AbortExecutionException;
 import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
 import graphql.execution.instrumentation.InstrumentationState;
 import graphql.execution.instrumentation.SimpleInstrumentation;
 import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
 import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
 import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.language.Definition;
+import graphql.language.Document;
 import graphql.language.FragmentDefinition;
+import graphql.language.OperationDefinition;
 import graphql.language.SelectionSet;
+import graphql.language.SourceLocation;
 import graphql.schema.DataFetcher;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
+import graphql.validation.ValidationError;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.Builder;
@@ -46,36 +76,240 @@ public class AuthzInstrumentation extends SimpleInstrumentation {
 
   private static final AuthzListener DEFAULT_AUTHZ_LISTENER = new SimpleAuthZListener();
   private static final AuthorizationExtensionProvider DEFAULT_AUTH_EXTENSION_PROVIDER = new DefaultAuthorizationExtensionProvider();
-  private final AuthorizationHolder authorizationHolder;
+  private static final String AGGREGATED_ERROR_MESSAGE = "403 - Not authorized to access fields=%s";
+  private static final String AUTHORIZATION_EXTENSION = "authorization";
+  private static final String DENIED_FIELDS = "deniedFields";
+  private static final String DENIED_FIELD_COUNT = "deniedFieldCount";
+  private final AtomicReference<PolicySnapshot> policySnapshot = new AtomicReference<>();
+  private final GraphQLSchema schema;
+  private final int permissionsVerifierCacheSize;
+  private final int redactedSchemaCacheSize;
+  private final PolicyEngine policyEngine;
+  private final Executor compileExecutor;
+  private final Integer lazyCompiledClientsCacheSize;
+  private final int redactedOperationCacheSize;
+  private final BoundedCache<RedactedOperation.Key, RedactedOperation> redactedOperations;
+  private final int redactedIntrospectionCacheSize;
+  private final BoundedCache<IntrospectionRedactingDataFetcher.Key, List<?>> redactedIntrospection;
+  private final EnforcementMode enforcementMode;
+  private final BoundedCache<PermissionVerifier, GraphQLSchema> fieldVisibilitySchemas;
+  private final AuthzErrorStrategy errorStrategy;
   private final ScopeProvider scopeProvider;
+  private final DeniedFieldErrors deniedFieldErrors;
+  private final Executor extensionExecutor;
+  private final ExtensionGuard extensionGuard;
 
   @Default
   private AuthzListener authzListener = DEFAULT_AUTHZ_LISTENER;
   @Default
   private AuthorizationExtensionProvider authorizationExtensionProvider = DEFAULT_AUTH_EXTENSION_PROVIDER;
 
-  @Builder
   public AuthzInstrumentation(
       @NonNull AuthzClientConfiguration configuration,
       @NonNull GraphQLSchema schema,
       @NonNull ScopeProvider scopeProvider,
       AuthzListener authzListener,
       AuthorizationExtensionProvider authorizationExtensionProvider) {
+    this(configuration, schema, scopeProvider, authzListener, authorizationExtensionProvider, null, null, null,
+        null, null, null, null, null, null, null, null, null, null, null, null);
+  }
 
+  @Builder
+  public AuthzInstrumentation(
+      @NonNull AuthzClientConfiguration configuration,
+      @NonNull GraphQLSchema schema,
+      @NonNull ScopeProvider scopeProvider,
+      AuthzListener authzListener,
+      AuthorizationExtensionProvider authorizationExtensionProvider,
+      Integer permissionsVerifierCacheSize,
+      PolicyEngine policyEngine,
+      Executor compileExecutor,
+      Path compiledRulesSnapshotPath,
+      Integer lazyCompiledClientsCacheSize,
+      Integer redactedOperationCacheSize,
+      Integer redactedIntrospectionCacheSize,
+      Integer redactedSchemaCacheSize,
+      EnforcementMode enforcementMode,
+      AuthzErrorStrategy errorStrategy,
+      Executor extensionExecutor,
+      Duration extensionTimeout,
+      ExtensionFallback extensionFallback,
+      Double extensionFailureRateThreshold,
+      Duration extensionCircuitOpenDuration) {
+
+    this.schema = schema;
+    this.permissionsVerifierCacheSize = defaultIfNull(permissionsVerifierCacheSize,
+        AuthorizationHolder.DEFAULT_PERMISSIONS_VERIFIER_CACHE_SIZE);
+    this.redactedSchemaCacheSize = defaultIfNull(redactedSchemaCacheSize,
+        AuthorizationHolder.DEFAULT_REDACTED_SCHEMA_CACHE_SIZE);
+    this.policyEngine = defaultIfNull(policyEngine, PolicyEngine.TYPE_FIELD_MAP);
+    this.compileExecutor = compileExecutor;
+    this.lazyCompiledClientsCacheSize = lazyCompiledClientsCacheSize;
+    this.redactedOperationCacheSize = defaultIfNull(redactedOperationCacheSize, 0);
+    this.redactedOperations = new BoundedCache<>(this.redactedOperationCacheSize);
+    this.redactedIntrospectionCacheSize = defaultIfNull(redactedIntrospectionCacheSize, 0);
+    this.redactedIntrospection = new BoundedCache<>(this.redactedIntrospectionCacheSize);
+    this.enforcementMode = defaultIfNull(enforcementMode, EnforcementMode.REDACT);
+    this.fieldVisibilitySchemas = new BoundedCache<>(this.permissionsVerifierCacheSize);
+    this.errorStrategy = defaultIfNull(errorStrategy, AuthzErrorStrategy.PER_FIELD);
+    this.extensionExecutor = extensionExecutor;
+    this.extensionGuard = extensionTimeout == null && extensionFailureRateThreshold == null ? null
+        : new ExtensionGuard(extensionTimeout, defaultIfNull(extensionFallback, ExtensionFallback.DENY),
+            extensionFailureRateThreshold,
+            defaultIfNull(extensionCircuitOpenDuration, ExtensionGuard.DEFAULT_CIRCUIT_OPEN_DURATION),
+            extensionExecutor);
     if (configuration.getQueriesByClient().isEmpty()) {
       throw new IllegalArgumentException("Clients missing from AuthZClientConfiguration");
     }
-
-    this.authorizationHolder = new AuthorizationHolder(
-        getAuthorizationFactory(schema).parse(configuration.getQueriesByClient()));
+    AuthorizationHolderFactory authorizationFactory = getAuthorizationFactory(schema, compileExecutor);
+    CompiledRules compiledRules = compiledRulesSnapshotPath == null || lazyCompiledClientsCacheSize != null
+        ? compile(authorizationFactory, configuration)
+        : new CompiledRulesSnapshotFile(compiledRulesSnapshotPath)
+            .loadOrCompile(authorizationFactory, schema, configuration.getQueriesByClient());
+    this.policySnapshot.set(createSnapshot(1, compiledRules));
     this.scopeProvider = scopeProvider;
+    this.deniedFieldErrors = new DeniedFieldErrors(scopeProvider);
     this.authzListener = defaultIfNull(authzListener, DEFAULT_AUTHZ_LISTENER);
     this.authorizationExtensionProvider = defaultIfNull(authorizationExtensionProvider, DEFAULT_AUTH_EXTENSION_PROVIDER);
   }
 
+  /**
+   * Counters of the cache holding a permissions verifier per distinct scope combination.
+   *
+   * @return hit, miss and eviction counts
+   */
+  public CacheStats getPermissionsVerifierCacheStats() {
+    return policySnapshot.get().getAuthorizationHolder().getPermissionsVerifierCacheStats();
+  }
+
+  /**
+   * Counters of the cache holding redacted operations, see {@code redactedOperationCacheSize}.
+   *
+   * @return hit, miss and eviction counts
+   */
+  public CacheStats getRedactedOperationCacheStats() {
+    return redactedOperations.stats();
+  }
+
+  /**
+   * Counters of the cache holding filtered introspection lists, see {@code redactedIntrospectionCacheSize}.
+   *
+   * @return hit, miss and eviction counts
+   */
+  public CacheStats getRedactedIntrospectionCacheStats() {
+    return redactedIntrospection.stats();
+  }
+
+  /**
+   * Counters of the fields sent to authorization extensions, see {@code extensionTimeout} and
+   * {@code extensionFailureRateThreshold}.
+   *
+   * @return call, failure, timeout and short circuit counts, all zero if neither is configured
+   */
+  public ExtensionStats getExtensionStats() {
+    return extensionGuard == null ? new ExtensionStats(0, 0, 0, 0, 0) : extensionGuard.stats();
+  }
+
+  /**
+   * Returns the schema as seen by the given scopes, without the fields they are not permitted to and the types only
+   * reachable through them. The schema keeps the code registry of the original schema, so it can be used to
+   * introspect, validate or execute requests of clients with these scopes.
+   *
+   * @param scopes scopes of a client
+   * @return redacted schema, cached until the policy is reloaded
+   * @throws IllegalArgumentException if the scopes are not permitted to any field of the query type
+   */
+  public GraphQLSchema getRedactedSchema(@NonNull Set<String> scopes) {
+    return policySnapshot.get().getAuthorizationHolder().getRedactedSchema(scopes, schema);
+  }
+
+  /**
+   * Counters of the cache holding redacted schemas of the current policy, see {@code redactedSchemaCacheSize}.
+   *
+   * @return hit, miss and eviction counts
+   */
+  public CacheStats getRedactedSchemaCacheStats() {
+    return policySnapshot.get().getAuthorizationHolder().getRedactedSchemaCacheStats();
+  }
+
+  /**
+   * Compiles the rules of the given configuration on the calling thread and then publishes them atomically. Requests
+   * that already started keep the snapshot they started with; new requests use the new one. Verifiers cached for the
+   * previous snapshot are not reused.
+   *
+   * @param configuration the new access control configuration
+   * @return version of the published snapshot
+   */
+  public long reloadPolicy(@NonNull AuthzClientConfiguration configuration) {
+    if (configuration.getQueriesByClient().isEmpty()) {
+      throw new IllegalArgumentException("Clients missing from AuthZClientConfiguration");
+    }
+    CompiledRules compiledRules = compile(getAuthorizationFactory(schema, compileExecutor), configuration);
+    return publish(current -> compiledRules);
+  }
+
+  /**
+   * Recompiles only the given clients on top of the current policy and publishes the result like
+   * {@link #reloadPolicy(AuthzClientConfiguration)}. Clients whose rules did not change keep their compiled rules,
+   * clients mapped to an empty list of rules are removed, and clients that are not part of the map are kept as is.
+   *
+   * @param changedQueriesByClient rule queries of added, changed or removed clients
+   * @return version of the published snapshot
+   */
+  public long reloadClients(@NonNull Map<AuthzClient, List<String>> changedQueriesByClient) {
+    return publish(current -> getAuthorizationFactory(schema, compileExecutor)
+        .compile(current, changedQueriesByClient));
+  }
+
+  /**
+   * Same as {@link #reloadPolicy(AuthzClientConfiguration)} but compiles the rules on the given executor.
+   *
+   * @param configuration the new access control configuration
+   * @param executor executor to compile the rules on
+   * @return future completed with the version of the published snapshot
+   */
+  public CompletableFuture<Long> reloadPolicyAsync(@NonNull AuthzClientConfiguration configuration,
+      @NonNull Executor executor) {
+    return CompletableFuture.supplyAsync(() -> reloadPolicy(configuration), executor);
+  }
+
+  public PolicySnapshot getPolicySnapshot() {
+    return policySnapshot.get();
+  }
+
+  private CompiledRules compile(AuthorizationHolderFactory authorizationFactory,
+      AuthzClientConfiguration configuration) {
+    if (lazyCompiledClientsCacheSize != null) {
+      return authorizationFactory.compileLazily(configuration.getQueriesByClient(), lazyCompiledClientsCacheSize);
+    }
+    return authorizationFactory.compile(configuration.getQueriesByClient());
+  }
+
+  private synchronized long publish(UnaryOperator<CompiledRules> compiler) {
+    PolicySnapshot current = policySnapshot.get();
+    PolicySnapshot published = createSnapshot(current.getVersion() + 1, compiler.apply(current.getCompiledRules()));
+    policySnapshot.set(published);
+    redactedOperations.invalidateAll();
+    redactedIntrospection.invalidateAll();
+    fieldVisibilitySchemas.invalidateAll();
+    log.info("Published authorization policy version " + published.getVersion());
+    return published.getVersion();
+  }
+
+  private PolicySnapshot createSnapshot(long version, CompiledRules compiledRules) {
+    AuthorizationHolder authorizationHolder = new AuthorizationHolder(compiledRules.getScopeToTypeMap(),
+        permissionsVerifierCacheSize, policyEngine, redactedSchemaCacheSize);
+    authorizationHolder.prepare(schema);
+    return new PolicySnapshot(version, authorizationHolder, compiledRules);
+  }
+
   static AuthorizationHolderFactory getAuthorizationFactory(GraphQLSchema graphQLSchema) {
+    return getAuthorizationFactory(graphQLSchema, null);
+  }
+
+  static AuthorizationHolderFactory getAuthorizationFactory(GraphQLSchema graphQLSchema, Executor executor) {
     QueryRuleParser queryRuleParser = new QueryRuleParser(graphQLSchema);
-    return new AuthorizationHolderFactory(queryRuleParser);
+    return new AuthorizationHolderFactory(queryRuleParser, executor);
   }
 
   @Override
@@ -84,37 +318,145 @@ public class AuthzInstrumentation extends SimpleInstrumentation {
     // instrumentation state is passed during each invocation of an Instrumentation method
     // and allows you to put stateful data away and reference it during the query execution
     //
-    Set<String> scopes = scopeProvider.getScopes(parameters.getExecutionInput().getContext());
+    ScopeSet scopeSet = scopeProvider.getScopeSet(parameters.getExecutionInput().getContext());
+    PolicySnapshot snapshot = policySnapshot.get();
 
-    authzListener.onCreatingState(parameters.getSchema(), parameters.getExecutionInput());
-    return new AuthzInstrumentationState(authorizationHolder.getPermissionsVerifier(scopes, parameters.getSchema()),
-        parameters.getSchema(), scopes);
+    authzListener.onCreatingState(parameters.getSchema(), parameters.getExecutionInput(), scopeSet);
+    return new AuthzInstrumentationState(
+        snapshot.getAuthorizationHolder().getPermissionVerifier(scopeSet, parameters.getSchema()),
+        parameters.getSchema(), scopeSet, snapshot.getVersion());
   }
 
 
+  /*
+   * In validation mode the request is parsed, validated and executed against a schema whose field visibility hides
+   * the fields it is not permitted to. The schema shares the types of the original one, so it is cheap to derive,
+   * and it is cached per verifier.
+   */
+  @Override
+  public GraphQLSchema instrumentSchema(GraphQLSchema schema, InstrumentationExecutionParameters parameters) {
+    if (enforcementMode != EnforcementMode.VALIDATE) {
+      return schema;
+    }
+    AuthzInstrumentationState state = parameters.getInstrumentationState();
+    return fieldVisibilitySchemas.get(state.getPermissionVerifier(), permissionVerifier ->
+        schema.transformWithoutTypes(builder -> builder.codeRegistry(schema.getCodeRegistry().transform(
+            codeRegistry -> codeRegistry.fieldVisibility(new PolicyFieldVisibility(
+                schema.getCodeRegistry().getFieldVisibility(), permissionVerifier))))));
+  }
+
+  /*
+   * Validation only runs for documents not served by a PreparsedDocumentProvider. In validation mode a request whose
+   * document was validated against its own schema needs no further check of its fields.
+   */
+  @Override
+  public InstrumentationContext<List<ValidationError>> beginValidation(
+      InstrumentationValidationParameters parameters) {
+    AuthzInstrumentationState state = parameters.getInstrumentationState();
+    state.setValidated(true);
+    return super.beginValidation(parameters);
+  }
+
   @Override
   public ExecutionContext instrumentExecutionContext(ExecutionContext executionContext,
       InstrumentationExecutionParameters parameters) {
     AuthzInstrumentationState state = parameters.getInstrumentationState();
-    AuthorizationExtension authorizationExtension = this.authorizationExtensionProvider.getAuthorizationExtension(
-        executionContext, parameters);
+    AuthorizationExtension authorizationExtension = withExtensionGuard(withExtensionExecutor(
+        this.authorizationExtensionProvider.getAuthorizationExtension(executionContext, parameters)));
     ExecutionContext enforcedExecutionContext = getAuthzExecutionContext(executionContext, state,
         authorizationExtension);
     authzListener.onEnforcement(executionContext, enforcedExecutionContext);
     return enforcedExecutionContext;
   }
 
+  /*
+   * With an extension executor the fields of a synchronous extension are collected like for a batch extension and
+   * authorized concurrently. The execution context is only returned once all decisions are known, as graphql-java
+   * expects it synchronously.
+   */
+  private AuthorizationExtension withExtensionExecutor(AuthorizationExtension authorizationExtension) {
+    if (extensionExecutor == null || authorizationExtension instanceof BatchAuthorizationExtension
+        || AuthorizationTargets.targetsOf(authorizationExtension).isEmpty()) {
+      return authorizationExtension;
+    }
+    return new ExecutorAuthorizationExtension(authorizationExtension, extensionExecutor);
+  }
+
+  private AuthorizationExtension withExtensionGuard(AuthorizationExtension authorizationExtension) {
+    return extensionGuard == null ? authorizationExtension : extensionGuard.guard(authorizationExtension);
+  }
+
   private ExecutionContext getAuthzExecutionContext(ExecutionContext executionContext,
       AuthzInstrumentationState state, AuthorizationExtension authorizationExtension) {
     log.info("Authorization is enabled");
-    ExecutionContext restrictedContext = executionContext
-        .transform(executionContextBuilder -> executionContextBuilder
-            .operationDefinition(executionContext.getOperationDefinition()
-                .transform(operationDefinitionBuilder ->
-                    operationDefinitionBuilder
-                        .selectionSet(redactSelectionSet(executionContext, state, authorizationExtension))))
-            .fragmentsByName(redactFragments(executionContext, state, authorizationExtension))
-        );
+    if (enforcementMode == EnforcementMode.VALIDATE) {
+      if (!state.isValidated()) {
+        rejectDeniedFields(executionContext, state);
+      }
+      if (AuthorizationTargets.targetsOf(authorizationExtension).isEmpty()) {
+        return executionContext;
+      }
+    }
+    if (redactedOperationCacheSize > 0 && AuthorizationTargets.targetsOf(authorizationExtension).isEmpty()) {
+      RedactedOperation redactedOperation = redactedOperations.get(RedactedOperation.key(executionContext, state,
+          errorStrategy == AuthzErrorStrategy.PER_FIELD && !deniedFieldErrors.isCacheable()),
+          key -> redactOperation(executionContext, state, authorizationExtension));
+      if (redactedOperation != RedactedOperation.VARIABLE_DEPENDENT) {
+        return redactedOperation.applyTo(executionContext, state);
+      }
+    }
+    return redact(executionContext, state, authorizationExtension);
+  }
+
+  /*
+   * Validation is skipped for documents served by a PreparsedDocumentProvider, so a document validated for other
+   * permissions may still select fields this request is denied. Its fields are checked against the permissions of the
+   * request, traversing the original schema since the schema of the request hides the denied fields. A denied document
+   * is validated against the schema of the request and execution is aborted with the validation errors, as if
+   * validation had rejected it. Validation does not catch every denied field, e.g. __typename of a type without
+   * permitted fields, so the denied field found by the check is reported if validation passes.
+   */
+  private void rejectDeniedFields(ExecutionContext executionContext, AuthzInstrumentationState state) {
+    DeniedFieldDetector deniedFieldDetector = detectDeniedField(executionContext, state, state.getGraphQLSchema());
+    if (!deniedFieldDetector.isDenied()) {
+      return;
+    }
+    List<GraphQLError> errors = new ArrayList<>(ParseAndValidate.validate(executionContext.getGraphQLSchema(),
+        executionContext.getDocument(), executionContext.getLocale()));
+    if (errors.isEmpty()) {
+      String coordinates = deniedFieldDetector.getDeniedField().toString();
+      errors.add(GraphqlErrorBuilder.newError()
+          .errorType(ErrorType.DataFetchingException)
+          .message(String.format(AGGREGATED_ERROR_MESSAGE, coordinates))
+          .location(deniedFieldDetector.getDeniedFieldLocation())
+          .extensions(Collections.singletonMap(DENIED_FIELDS, Collections.singletonList(coordinates)))
+          .build());
+    }
+    throw new AbortExecutionException(errors);
+  }
+
+  /*
+   * Redacts on behalf of every request with the same key, so errors are collected in a state of their own and only
+   * added to the state of a request when the result is applied to it.
+   */
+  private RedactedOperation redactOperation(ExecutionContext executionContext, AuthzInstrumentationState state,
+      AuthorizationExtension authorizationExtension) {
+    if (RedactedOperation.isVariableDependent(executionContext.getDocument())) {
+      return RedactedOperation.VARIABLE_DEPENDENT;
+    }
+    AuthzInstrumentationState redactionState = new AuthzInstrumentationState(state.getPermissionVerifier(),
+        state.getGraphQLSchema(), state.getScopeSet(), state.getPolicyVersion());
+    ExecutionContext redactedContext = redact(executionContext, redactionState, authorizationExtension);
+    return RedactedOperation.of(executionContext, redactedContext, redactionState);
+  }
+
+  private ExecutionContext redact(ExecutionContext executionContext, AuthzInstrumentationState state,
+      AuthorizationExtension authorizationExtension) {
+    if (AuthorizationTargets.targetsOf(authorizationExtension).isEmpty() && isPermitted(executionContext, state)) {
+      log.debug("All requested fields are permitted, executionContext left unchanged");
+      return executionContext;
+    }
+    ExecutionContext restrictedContext = redactOperationAndFragments(executionContext, state, authorizationExtension);
     log.info("Restricted executionContext created");
     return restrictedContext;
   }
@@ -125,15 +467,61 @@ public class AuthzInstrumentation extends SimpleInstrumentation {
       InstrumentationExecutionParameters parameters) {
     AuthzInstrumentationState instrumentationState = parameters.getInstrumentationState();
     List<GraphQLError> graphQLErrors = executionResult.getErrors();
-    if (CollectionUtils.isNotEmpty(instrumentationState.getAuthzErrors())) {
-      graphQLErrors = Stream.concat(graphQLErrors.stream(), instrumentationState.getAuthzErrors().stream())
+    List<GraphQLError> authzErrors = instrumentationState.getAuthzErrors();
+    Map<Object, Object> deniedFieldsSummary = null;
+    if (!instrumentationState.getDeniedFields().isEmpty()) {
+      if (errorStrategy == AuthzErrorStrategy.AGGREGATED) {
+        authzErrors = new ArrayList<>(authzErrors);
+        authzErrors.add(createAggregatedError(instrumentationState.getDeniedFields()));
+      } else {
+        deniedFieldsSummary = createDeniedFieldsSummary(instrumentationState);
+      }
+    }
+    if (CollectionUtils.isNotEmpty(authzErrors)) {
+      graphQLErrors = Stream.concat(graphQLErrors.stream(), authzErrors.stream())
           .collect(Collectors.toList());
     }
     if (executionResult.getData() == null) {
-      return CompletableFuture.completedFuture(new ExecutionResultImpl(graphQLErrors));
+      if (deniedFieldsSummary == null) {
+        return CompletableFuture.completedFuture(new ExecutionResultImpl(graphQLErrors));
+      }
+      return CompletableFuture.completedFuture(ExecutionResultImpl.newExecutionResult()
+          .errors(graphQLErrors)
+          .extensions(withDeniedFieldsSummary(null, deniedFieldsSummary))
+          .build());
     }
+    Map<Object, Object> extensions = deniedFieldsSummary == null ? executionResult.getExtensions()
+        : withDeniedFieldsSummary(executionResult.getExtensions(), deniedFieldsSummary);
     return CompletableFuture.completedFuture(
-        new ExecutionResultImpl(executionResult.getData(), graphQLErrors, executionResult.getExtensions()));
+        new ExecutionResultImpl(executionResult.getData(), graphQLErrors, extensions));
+  }
+
+  private static GraphQLError createAggregatedError(Map<FieldCoordinates, List<SourceLocation>> deniedFields) {
+    List<String> coordinates = deniedFields.keySet().stream()
+        .map(FieldCoordinates::toString)
+        .collect(Collectors.toList());
+    return GraphqlErrorBuilder.newError()
+        .errorType(ErrorType.DataFetchingException)
+        .message(String.format(AGGREGATED_ERROR_MESSAGE, String.join(",", coordinates)))
+        .locations(deniedFields.values().stream().flatMap(List::stream).collect(Collectors.toList()))
+        .extensions(Collections.singletonMap(DENIED_FIELDS, coordinates))
+        .build();
+  }
+
+  private static Map<Object, Object> createDeniedFieldsSummary(AuthzInstrumentationState state) {
+    Map<Object, Object> summary = new LinkedHashMap<>();
+    summary.put(DENIED_FIELDS, state.getDeniedFields().keySet().stream()
+        .map(FieldCoordinates::toString)
+        .collect(Collectors.toList()));
+    summary.put(DENIED_FIELD_COUNT, state.getDeniedFieldCount());
+    return summary;
+  }
+
+  private static Map<Object, Object> withDeniedFieldsSummary(Map<Object, Object> extensions,
+      Map<Object, Object> deniedFieldsSummary) {
+    Map<Object, Object> merged = extensions == null ? new LinkedHashMap<>() : new LinkedHashMap<>(extensions);
+    merged.put(AUTHORIZATION_EXTENSION, deniedFieldsSummary);
+    return merged;
   }
 
 
@@ -144,58 +532,149 @@ public class AuthzInstrumentation extends SimpleInstrumentation {
         .fragmentsByName(executionContext.getFragmentsByName());
   }
 
-  Map<String, FragmentDefinition> redactFragments(ExecutionContext executionContext, AuthzInstrumentationState state,
-      AuthorizationExtension authorizationExtension) {
-    //treat each fragment as root and redact based on configuration
-    return executionContext.getFragmentsByName().values().stream().map(entry ->
-            redactFragment(entry, executionContext, state, authorizationExtension))
-        .collect(Collectors.toMap(FragmentDefinition::getName, Function.identity()));
+  /*
+   * An extension targeting no field, like the default one, allows every field, so if no field of the operation is
+   * denied by the rules there is nothing to redact. Other extensions are only called while redacting, so that they
+   * are asked once per field.
+   */
+  boolean isPermitted(ExecutionContext executionContext, AuthzInstrumentationState state) {
+    return !detectDeniedField(executionContext, state, executionContext.getGraphQLSchema()).isDenied();
   }
 
-  FragmentDefinition redactFragment(FragmentDefinition fragmentDefinition, ExecutionContext executionContext,
-      AuthzInstrumentationState state, AuthorizationExtension authorizationExtension) {
-    fragmentDefinition.getTypeCondition();
-    QueryTransformer queryTransformer = initQueryTransformerBuilder(executionContext)
-        .root(fragmentDefinition)
-        .rootParentType(executionContext.getGraphQLSchema().getQueryType())
-        .build();
-
-    return (FragmentDefinition)
-        queryTransformer.transform(new RedactingVisitor(state, executionContext, authzListener,
-            authorizationExtension, scopeProvider));
+  private DeniedFieldDetector detectDeniedField(ExecutionContext executionContext, AuthzInstrumentationState state,
+      GraphQLSchema schema) {
+    GraphQLObjectType rootType = GraphQLUtil.getRootTypeFromOperation(executionContext.getOperationDefinition(),
+        schema);
+    DeniedFieldDetector deniedFieldDetector = new DeniedFieldDetector(state.getPermissionVerifier());
+    QueryTraverser.newQueryTraverser()
+        .schema(schema)
+        .variables(executionContext.getVariables())
+        .fragmentsByName(executionContext.getFragmentsByName())
+        .rootParentType(rootType)
+        .root(executionContext.getOperationDefinition().getSelectionSet())
+        .build()
+        .visitPreOrder(deniedFieldDetector);
+    return deniedFieldDetector;
   }
 
-
-  SelectionSet redactSelectionSet(ExecutionContext executionContext, AuthzInstrumentationState state,
+  /*
+   * The operation and the fragments it spreads, directly or through other fragments, are redacted in one traversal
+   * of a document holding just them. Fields of the operation are typed by its root type and fields of a fragment by
+   * its type condition, and each fragment is visited once however often it is spread. Variable definitions and
+   * directives of the operation are not part of the traversal and are kept as they are. A batch extension is asked
+   * about all fields it targets before the traversal redacting the document; that traversal follows the fragment
+   * spreads of the operation instead, so fields of fragments only spread below fields denied by the rules are not
+   * part of the batch.
+   */
+  ExecutionContext redactOperationAndFragments(ExecutionContext executionContext, AuthzInstrumentationState state,
       AuthorizationExtension authorizationExtension) {
-    GraphQLObjectType rootType = GraphQLUtil.getRootTypeFromOperation(executionContext.getOperationDefinition(),
-        executionContext.getGraphQLSchema());
+    OperationDefinition operationDefinition = executionContext.getOperationDefinition();
+    Map<String, FragmentDefinition> reachableFragments = GraphQLUtil.getReachableFragments(
+        operationDefinition.getSelectionSet(), executionContext.getFragmentsByName());
+
+    Document.Builder document = Document.newDocument().definition(OperationDefinition.newOperationDefinition()
+        .name(operationDefinition.getName())
+        .operation(operationDefinition.getOperation())
+        .selectionSet(operationDefinition.getSelectionSet())
+        .build());
+    reachableFragments.values().forEach(document::definition);
 
-    QueryTransformer transformer = initQueryTransformerBuilder(executionContext)
+    GraphQLObjectType rootType = GraphQLUtil.getRootTypeFromOperation(operationDefinition,
+        executionContext.getGraphQLSchema());
+    QueryTransformer queryTransformer = initQueryTransformerBuilder(executionContext)
         .rootParentType(rootType)
-        .root(executionContext.getOperationDefinition().getSelectionSet())
+        .root(document.build())
         .build();
+    AuthorizationExtension fieldAuthorization = authorizationExtension;
+    if (authorizationExtension instanceof BatchAuthorizationExtension) {
+      BatchAuthorization.Collector collector = new BatchAuthorization.Collector(state.getPermissionVerifier(),
+          authorizationExtension);
+      QueryTraverser.newQueryTraverser()
+          .schema(executionContext.getGraphQLSchema())
+          .variables(executionContext.getVariables())
+          .fragmentsByName(reachableFragments)
+          .rootParentType(rootType)
+          .root(operationDefinition.getSelectionSet())
+          .build()
+          .visitPreOrder(collector);
+      fieldAuthorization = BatchAuthorization.evaluate((BatchAuthorizationExtension) authorizationExtension,
+          collector);
+    }
+    Document redactedDocument = (Document) queryTransformer.transform(new RedactingVisitor(state, executionContext,
+        authzListener, fieldAuthorization, deniedFieldErrors, errorStrategy));
 
-    return (SelectionSet) transformer.transform(new RedactingVisitor(state, executionContext, authzListener,
-        authorizationExtension, scopeProvider));
+    SelectionSet redactedSelectionSet = operationDefinition.getSelectionSet();
+    Map<String, FragmentDefinition> redactedFragments = new LinkedHashMap<>();
+    for (Definition<?> definition : redactedDocument.getDefinitions()) {
+      if (definition instanceof OperationDefinition) {
+        redactedSelectionSet = ((OperationDefinition) definition).getSelectionSet();
+      } else if (definition instanceof FragmentDefinition) {
+        redactedFragments.put(((FragmentDefinition) definition).getName(), (FragmentDefinition) definition);
+      }
+    }
+    SelectionSet selectionSet = redactedSelectionSet;
+    return executionContext.transform(executionContextBuilder -> executionContextBuilder
+        .operationDefinition(operationDefinition.transform(operationDefinitionBuilder ->
+            operationDefinitionBuilder.selectionSet(selectionSet)))
+        .fragmentsByName(redactedFragments));
   }
 
 
   @Override
   public DataFetcher<?> instrumentDataFetcher(DataFetcher<?> dataFetcher,
       InstrumentationFieldFetchParameters parameters) {
+    //only the few introspection fields listing types or fields are filtered, all other fetchers are returned as is
+    GraphQLFieldDefinition fieldDefinition = parameters.getField();
+    GraphQLObjectType parentType = parameters.getExecutionStepInfo().getObjectType();
+    if (!IntrospectionRedactingDataFetcher.isRedactedIntrospectionField(parentType, fieldDefinition)) {
+      return dataFetcher;
+    }
     AuthzInstrumentationState state = parameters.getInstrumentationState();
-    return new IntrospectionRedactingDataFetcher(dataFetcher, state);
+    return state.getIntrospectionDataFetchers().computeIfAbsent(fieldDefinition,
+        field -> new IntrospectionRedactingDataFetcher(dataFetcher, state,
+            IntrospectionRedactingDataFetcher.isFieldsOfType(parentType, field),
+            redactedIntrospectionCacheSize > 0 ? redactedIntrospection : null));
   }
 
   @Data
   @RequiredArgsConstructor
   static class AuthzInstrumentationState implements InstrumentationState {
 
-    private final TypeFieldPermissionVerifier typeFieldPermissionVerifier;
+    private final PermissionVerifier permissionVerifier;
     private final GraphQLSchema graphQLSchema;
-    private final Set<String> scopes;
+    private final ScopeSet scopeSet;
+    private final long policyVersion;
     private List<GraphQLError> authzErrors = new LinkedList<>();
+    private final Map<GraphQLFieldDefinition, DataFetcher<?>> introspectionDataFetchers = new ConcurrentHashMap<>();
+    private final Map<FieldCoordinates, List<SourceLocation>> deniedFields = new LinkedHashMap<>();
+    private int deniedFieldCount;
+    private boolean validated;
+
+    public Set<String> getScopes() {
+      return scopeSet.getScopes();
+    }
+
+    /**
+     * Records a field redacted because the rules do not permit it, for error strategies that report denied fields
+     * once per request. Fields parsed without source locations are counted but add no location.
+     */
+    public void addDeniedField(FieldCoordinates fieldCoordinates, SourceLocation sourceLocation) {
+      List<SourceLocation> locations = deniedFields.computeIfAbsent(fieldCoordinates, coordinates -> new ArrayList<>());
+      if (sourceLocation != null) {
+        locations.add(sourceLocation);
+      }
+      deniedFieldCount++;
+    }
+
+    /**
+     * Records the denied fields of another state, e.g. of a redaction cached for requests with the same operation.
+     */
+    public void addDeniedFields(Map<FieldCoordinates, List<SourceLocation>> deniedFields, int deniedFieldCount) {
+      deniedFields.forEach((fieldCoordinates, locations) -> this.deniedFields
+          .computeIfAbsent(fieldCoordinates, coordinates -> new ArrayList<>())
+          .addAll(locations));
+      this.deniedFieldCount += deniedFieldCount;
+    }
   }
 
 }
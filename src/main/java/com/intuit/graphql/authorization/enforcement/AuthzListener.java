@@ -1,5 +1,6 @@
 package com.intuit.graphql.authorization.enforcement;
 
+import com.intuit.graphql.authorization.util.ScopeSet;
 import graphql.ExecutionInput;
 import graphql.analysis.QueryVisitorFieldEnvironment;
 import graphql.execution.ExecutionContext;
@@ -29,6 +30,19 @@ public interface AuthzListener {
    */
   void onCreatingState( final GraphQLSchema schema, final ExecutionInput executionInput);
 
+  /**
+   * This will be called just before creating authz instrumentation state. The default implementation delegates to
+   * {@link #onCreatingState(GraphQLSchema, ExecutionInput)}.
+   *
+   * @param schema the graphql schema.
+   * @param executionInput the execution input.
+   * @param scopeSet the interned scopes of the request.
+   */
+  default void onCreatingState(final GraphQLSchema schema, final ExecutionInput executionInput,
+      final ScopeSet scopeSet) {
+    onCreatingState(schema, executionInput);
+  }
+
   /**
    * This will be called after enforcing authz policy on the execution input if applicable.
    *
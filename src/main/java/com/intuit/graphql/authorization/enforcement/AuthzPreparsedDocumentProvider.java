@@ -0,0 +1,42 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Preparsed document provider to use with {@link EnforcementMode#VALIDATE} in front of a provider caching documents by
+ * query text. Requests with different permissions validate the same query differently, so a cached entry holding
+ * validation errors is validated again for the request it is served to instead of returning errors that were found
+ * for other permissions. A cached entry without errors is checked against the permissions of the request when it is
+ * executed.
+ */
+public class AuthzPreparsedDocumentProvider implements PreparsedDocumentProvider {
+
+  private final PreparsedDocumentProvider delegate;
+
+  public AuthzPreparsedDocumentProvider(PreparsedDocumentProvider delegate) {
+    this.delegate = Objects.requireNonNull(delegate);
+  }
+
+  @Override
+  public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+      Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+    return getDocumentAsync(executionInput, parseAndValidateFunction).join();
+  }
+
+  @Override
+  public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+      Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+    AtomicBoolean validated = new AtomicBoolean();
+    return delegate.getDocumentAsync(executionInput, input -> {
+      validated.set(true);
+      return parseAndValidateFunction.apply(input);
+    }).thenApply(entry -> entry.hasErrors() && !validated.get()
+        ? parseAndValidateFunction.apply(executionInput) : entry);
+  }
+}
@@ -0,0 +1,103 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static graphql.schema.GraphQLTypeUtil.unwrapAll;
+
+import com.intuit.graphql.authorization.extension.AuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
+import com.intuit.graphql.authorization.extension.BatchAuthorizationExtension;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationEnvironment;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationResult;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.language.Field;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLUnmodifiedType;
+import graphql.util.TraversalControl;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The decisions of a {@link BatchAuthorizationExtension} for the fields of one operation, looked up by field node
+ * while the operation is redacted. Each field node is visited once by the redaction, so the node identifies the
+ * decision.
+ */
+class BatchAuthorization implements AuthorizationExtension {
+
+  private final AuthorizationTargets targets;
+  private final Map<Field, FieldAuthorizationResult> results;
+
+  private BatchAuthorization(AuthorizationTargets targets, Map<Field, FieldAuthorizationResult> results) {
+    this.targets = targets;
+    this.results = results;
+  }
+
+  /**
+   * @param batchAuthorizationExtension extension of the request
+   * @param collector fields collected by a traversal of the operation
+   * @return decisions of the extension for the collected fields
+   */
+  static BatchAuthorization evaluate(BatchAuthorizationExtension batchAuthorizationExtension, Collector collector) {
+    List<FieldAuthorizationResult> fieldAuthorizationResults = collector.environments.isEmpty()
+        ? new ArrayList<>() : batchAuthorizationExtension.authorizeAll(collector.environments);
+    if (fieldAuthorizationResults.size() != collector.environments.size()) {
+      throw new IllegalStateException("BatchAuthorizationExtension returned " + fieldAuthorizationResults.size()
+          + " results for " + collector.environments.size() + " fields");
+    }
+    Map<Field, FieldAuthorizationResult> results = new IdentityHashMap<>();
+    for (int i = 0; i < fieldAuthorizationResults.size(); i++) {
+      results.put(collector.environments.get(i).getField(), fieldAuthorizationResults.get(i));
+    }
+    return new BatchAuthorization(AuthorizationTargets.targetsOf(batchAuthorizationExtension), results);
+  }
+
+  FieldAuthorizationResult getResult(Field field) {
+    return results.getOrDefault(field, FieldAuthorizationResult.ALLOWED_FIELD_AUTH_RESULT);
+  }
+
+  @Override
+  public FieldAuthorizationResult authorize(FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+    return getResult(fieldAuthorizationEnvironment.getField());
+  }
+
+  @Override
+  public AuthorizationTargets getTargets() {
+    return targets;
+  }
+
+  /**
+   * Collects an environment for every field the rules permit and the extension targets, traversing the operation with
+   * its fragment spreads inlined. Fields below a field denied by the rules, including the fields of fragments spread
+   * there, are skipped, as the redaction removes them anyway. A field of a fragment spread more than once is collected
+   * once.
+   */
+  static class Collector extends QueryVisitorStub {
+
+    private final PermissionVerifier permissionVerifier;
+    private final AuthorizationTargets targets;
+    private final List<FieldAuthorizationEnvironment> environments = new ArrayList<>();
+    private final Set<Field> visitedFields = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    Collector(PermissionVerifier permissionVerifier, AuthorizationExtension authorizationExtension) {
+      this.permissionVerifier = permissionVerifier;
+      this.targets = AuthorizationTargets.targetsOf(authorizationExtension);
+    }
+
+    @Override
+    public TraversalControl visitFieldWithControl(QueryVisitorFieldEnvironment queryVisitorFieldEnvironment) {
+      GraphQLUnmodifiedType parentType = unwrapAll(queryVisitorFieldEnvironment.getParentType());
+      GraphQLFieldDefinition fieldDefinition = queryVisitorFieldEnvironment.getFieldDefinition();
+      if (!permissionVerifier.isPermitted(parentType, fieldDefinition)
+          || !visitedFields.add(queryVisitorFieldEnvironment.getField())) {
+        return TraversalControl.ABORT;
+      }
+      if (targets.appliesTo(parentType, fieldDefinition)) {
+        environments.add(RedactingVisitor.createFieldAuthorizationEnvironment(queryVisitorFieldEnvironment));
+      }
+      return TraversalControl.CONTINUE;
+    }
+  }
+}
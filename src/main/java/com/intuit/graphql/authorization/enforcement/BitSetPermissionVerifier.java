@@ -0,0 +1,66 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static com.intuit.graphql.authorization.enforcement.TypeFieldPermissionVerifier.isTypeSpecial;
+import static graphql.schema.GraphQLTypeUtil.unwrapAll;
+
+import com.intuit.graphql.authorization.enforcement.BitSetPolicy.Grants;
+import com.intuit.graphql.authorization.enforcement.SchemaFieldIndex.TypeSlot;
+import graphql.introspection.Introspection;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLNamedType;
+import graphql.schema.GraphQLSchema;
+
+/**
+ * Verifies permissions against grants compiled into bit arrays by {@link BitSetPolicy}. Permits exactly what a
+ * {@link TypeFieldPermissionVerifier} built from the same rules permits.
+ *
+ * Types and fields are resolved through the identity-keyed {@link SchemaFieldIndex}, so a check against the schema
+ * the policy was compiled for is a map lookup by reference plus a bit test.
+ */
+public class BitSetPermissionVerifier implements PermissionVerifier {
+
+  private final GraphQLSchema schema;
+  private final SchemaFieldIndex index;
+  private final Grants grants;
+
+  BitSetPermissionVerifier(GraphQLSchema schema, SchemaFieldIndex index, Grants grants) {
+    this.schema = schema;
+    this.index = index;
+    this.grants = grants;
+  }
+
+  GraphQLSchema getSchema() {
+    return schema;
+  }
+
+  Grants getGrants() {
+    return grants;
+  }
+
+  @Override
+  public boolean isPermitted(GraphQLNamedType graphQLType) {
+    TypeSlot typeSlot = index.typeSlot(graphQLType);
+    if (typeSlot == null) {
+      return isTypeSpecial(graphQLType);
+    }
+    return typeSlot.isSpecial() || Grants.test(grants.types, typeSlot.getTypeId());
+  }
+
+  @Override
+  public boolean isPermitted(GraphQLNamedType parentType, GraphQLFieldDefinition fieldDefinition) {
+    TypeSlot typeSlot = index.typeSlot(parentType);
+    if (typeSlot == null) {
+      return isTypeSpecial(parentType)
+          || parentType == schema.getQueryType() && unwrapAll(fieldDefinition.getType()) == Introspection.__Schema;
+    }
+    if (typeSlot.isSpecial()) {
+      return true;
+    }
+    //allow __typename, if at least one field is allowed.
+    if (fieldDefinition == Introspection.TypeNameMetaFieldDef) {
+      return Grants.test(grants.typesWithFields, typeSlot.getTypeId());
+    }
+    int fieldId = typeSlot.fieldId(fieldDefinition);
+    return fieldId == SchemaFieldIndex.ALWAYS_PERMITTED || Grants.test(grants.fields, fieldId);
+  }
+}
@@ -0,0 +1,146 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import com.intuit.graphql.authorization.util.BoundedCache;
+import graphql.schema.GraphQLSchema;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The rules of every scope compiled against the dense ids of a {@link SchemaFieldIndex}. A lazily compiled policy
+ * compiles the rules of a scope on first use and keeps a bounded number of them.
+ */
+class BitSetPolicy {
+
+  private final GraphQLSchema schema;
+  private final SchemaFieldIndex index;
+  private final Function<String, Grants> grantsByScope;
+
+  private BitSetPolicy(GraphQLSchema schema, SchemaFieldIndex index, Function<String, Grants> grantsByScope) {
+    this.schema = schema;
+    this.index = index;
+    this.grantsByScope = grantsByScope;
+  }
+
+  static BitSetPolicy compile(GraphQLSchema schema, Map<String, Map<String, Set<String>>> scopeToTypeMap) {
+    SchemaFieldIndex index = SchemaFieldIndex.of(schema);
+    Map<String, Grants> grantsByScope = new HashMap<>();
+    scopeToTypeMap.forEach((scope, typeToFields) -> grantsByScope.put(scope, Grants.compile(index, typeToFields)));
+    return new BitSetPolicy(schema, index, Collections.unmodifiableMap(grantsByScope)::get);
+  }
+
+  static BitSetPolicy compileLazily(GraphQLSchema schema, Map<String, Map<String, Set<String>>> scopeToTypeMap,
+      int maximumSize) {
+    SchemaFieldIndex index = SchemaFieldIndex.of(schema);
+    BoundedCache<String, Grants> grantsByScope = new BoundedCache<>(maximumSize);
+    return new BitSetPolicy(schema, index, scope -> {
+      Map<String, Set<String>> typeToFields = scopeToTypeMap.get(scope);
+      return typeToFields == null ? null : grantsByScope.get(scope, s -> Grants.compile(index, typeToFields));
+    });
+  }
+
+  BitSetPermissionVerifier getPermissionVerifier(String[] scopes) {
+    Grants grants;
+    if (scopes.length == 1) {
+      Grants scopeGrants = grantsByScope.apply(scopes[0]);
+      grants = scopeGrants != null ? scopeGrants : Grants.empty(index);
+    } else {
+      grants = Grants.union(index, Arrays.stream(scopes)
+          .map(grantsByScope)
+          .filter(Objects::nonNull)
+          .collect(Collectors.toList()));
+    }
+    return new BitSetPermissionVerifier(schema, index, grants);
+  }
+
+  static class Grants {
+
+    final long[] types;
+    final long[] typesWithFields;
+    final long[] fields;
+
+    private Grants(long[] types, long[] typesWithFields, long[] fields) {
+      this.types = types;
+      this.typesWithFields = typesWithFields;
+      this.fields = fields;
+    }
+
+    static Grants empty(SchemaFieldIndex index) {
+      return new Grants(words(index.getTypeCount()), words(index.getTypeCount()), words(index.getFieldCount()));
+    }
+
+    static Grants compile(SchemaFieldIndex index, Map<String, Set<String>> typeToFields) {
+      Grants grants = empty(index);
+      for (Entry<String, Set<String>> entry : typeToFields.entrySet()) {
+        int typeId = index.typeId(entry.getKey());
+        if (typeId == SchemaFieldIndex.UNKNOWN) {
+          continue;
+        }
+        set(grants.types, typeId);
+        if (!entry.getValue().isEmpty()) {
+          set(grants.typesWithFields, typeId);
+        }
+        for (String fieldName : entry.getValue()) {
+          int fieldId = index.fieldId(entry.getKey(), fieldName);
+          if (fieldId >= 0) {
+            set(grants.fields, fieldId);
+          }
+        }
+      }
+      return grants;
+    }
+
+    static Grants union(SchemaFieldIndex index, Collection<Grants> grantsToMerge) {
+      Grants union = empty(index);
+      for (Grants grants : grantsToMerge) {
+        or(union.types, grants.types);
+        or(union.typesWithFields, grants.typesWithFields);
+        or(union.fields, grants.fields);
+      }
+      return union;
+    }
+
+    private static long[] words(int bits) {
+      return new long[(bits + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    private static void set(long[] words, int bit) {
+      words[bit >>> 6] |= 1L << bit;
+    }
+
+    private static void or(long[] target, long[] source) {
+      for (int i = 0; i < target.length; i++) {
+        target[i] |= source[i];
+      }
+    }
+
+    static boolean test(long[] words, int bit) {
+      return bit >= 0 && (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Grants)) {
+        return false;
+      }
+      Grants that = (Grants) o;
+      return Arrays.equals(types, that.types) && Arrays.equals(typesWithFields, that.typesWithFields)
+          && Arrays.equals(fields, that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * Arrays.hashCode(types) + Arrays.hashCode(typesWithFields)) + Arrays.hashCode(fields);
+    }
+  }
+}
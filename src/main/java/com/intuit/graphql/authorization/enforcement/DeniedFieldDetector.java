@@ -0,0 +1,51 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static graphql.schema.GraphQLTypeUtil.unwrapAll;
+
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.language.SourceLocation;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLNamedType;
+import graphql.util.TraversalControl;
+
+/**
+ * Read-only counterpart of {@link RedactingVisitor}: checks the same permissions but neither records errors nor
+ * changes the document, and quits the traversal at the first field that would be redacted.
+ */
+class DeniedFieldDetector extends QueryVisitorStub {
+
+  private final PermissionVerifier permissionVerifier;
+  private FieldCoordinates deniedField;
+  private SourceLocation deniedFieldLocation;
+
+  DeniedFieldDetector(PermissionVerifier permissionVerifier) {
+    this.permissionVerifier = permissionVerifier;
+  }
+
+  @Override
+  public TraversalControl visitFieldWithControl(QueryVisitorFieldEnvironment queryVisitorFieldEnvironment) {
+    GraphQLNamedType parentType = unwrapAll(queryVisitorFieldEnvironment.getParentType());
+    if (permissionVerifier.isPermitted(parentType, queryVisitorFieldEnvironment.getFieldDefinition())) {
+      return TraversalControl.CONTINUE;
+    }
+    deniedField = FieldCoordinates.coordinates(parentType.getName(), queryVisitorFieldEnvironment.getField().getName());
+    deniedFieldLocation = queryVisitorFieldEnvironment.getField().getSourceLocation();
+    return TraversalControl.QUIT;
+  }
+
+  boolean isDenied() {
+    return deniedField != null;
+  }
+
+  /**
+   * @return coordinates of the first denied field, null if none is denied
+   */
+  FieldCoordinates getDeniedField() {
+    return deniedField;
+  }
+
+  SourceLocation getDeniedFieldLocation() {
+    return deniedFieldLocation;
+  }
+}
@@ -0,0 +1,55 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static graphql.ErrorType.DataFetchingException;
+
+import graphql.ErrorClassification;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorHelper;
+import graphql.language.SourceLocation;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Error of a field redacted because the rules do not permit it. The message is shared by every occurrence of the
+ * same field coordinates, only the location differs.
+ */
+class DeniedFieldError implements GraphQLError {
+
+  private final String message;
+  private final List<SourceLocation> locations;
+
+  DeniedFieldError(String message, SourceLocation sourceLocation) {
+    this.message = message;
+    this.locations = sourceLocation == null ? null : Collections.singletonList(sourceLocation);
+  }
+
+  @Override
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public List<SourceLocation> getLocations() {
+    return locations;
+  }
+
+  @Override
+  public ErrorClassification getErrorType() {
+    return DataFetchingException;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return GraphqlErrorHelper.equals(this, o);
+  }
+
+  @Override
+  public int hashCode() {
+    return GraphqlErrorHelper.hashCode(this);
+  }
+
+  @Override
+  public String toString() {
+    return "DeniedFieldError{message='" + message + "', locations=" + locations + "}";
+  }
+}
@@ -0,0 +1,86 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static graphql.ErrorType.DataFetchingException;
+
+import com.intuit.graphql.authorization.util.ScopeProvider;
+import com.intuit.graphql.authorization.util.ScopeSet;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.language.Field;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLNamedType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the errors of fields redacted because the rules do not permit them.
+ *
+ * If the message of a field only depends on its coordinates, i.e. the scope provider does not override
+ * {@link ScopeProvider#getErrorMessage(RedactionContext)} or declares it with
+ * {@link ScopeProvider#isErrorMessageCacheable()}, the message is formatted once per field coordinates and each error
+ * only adds the location of the field. Messages are keyed by type and field name rather than by schema element, so
+ * copies of the schema, like the redacted schemas, share them, and they stay bounded by the number of fields of the
+ * schema for as long as the instrumentation is kept.
+ */
+class DeniedFieldErrors {
+
+  // visitors created with the legacy constructor of RedactingVisitor create an instance each
+  private static final ClassValue<Boolean> OVERRIDES_ERROR_MESSAGE = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return overridesErrorMessage(type);
+    }
+  };
+
+  private final ScopeProvider scopeProvider;
+  private final boolean cacheable;
+  private final Map<FieldCoordinates, String> messages = new ConcurrentHashMap<>();
+
+  DeniedFieldErrors(ScopeProvider scopeProvider) {
+    this.scopeProvider = scopeProvider;
+    this.cacheable = scopeProvider.isErrorMessageCacheable() || !OVERRIDES_ERROR_MESSAGE.get(scopeProvider.getClass());
+  }
+
+  /**
+   * @return true if the message of a denied field only depends on its coordinates
+   */
+  boolean isCacheable() {
+    return cacheable;
+  }
+
+  GraphQLError create(GraphQLNamedType parentType, GraphQLFieldDefinition fieldDefinition, Field field,
+      ScopeSet scopeSet) {
+    if (!cacheable) {
+      return GraphqlErrorBuilder.newError()
+          .errorType(DataFetchingException)
+          .message(getErrorMessage(parentType, field, scopeSet))
+          .location(field.getSourceLocation())
+          .build();
+    }
+    FieldCoordinates fieldCoordinates = FieldCoordinates.coordinates(parentType.getName(), fieldDefinition.getName());
+    String message = messages.get(fieldCoordinates);
+    if (message == null) {
+      message = messages.computeIfAbsent(fieldCoordinates,
+          coordinates -> getErrorMessage(parentType, field, scopeSet));
+    }
+    return new DeniedFieldError(message, field.getSourceLocation());
+  }
+
+  private String getErrorMessage(GraphQLNamedType parentType, Field field, ScopeSet scopeSet) {
+    return scopeProvider.getErrorMessage(RedactionContext.builder()
+        .fieldCoordinates(FieldCoordinates.coordinates(parentType.getName(), field.getName()))
+        .field(field)
+        .scopeSet(scopeSet)
+        .build());
+  }
+
+  private static boolean overridesErrorMessage(Class<?> scopeProviderClass) {
+    try {
+      return scopeProviderClass.getMethod("getErrorMessage", RedactionContext.class).getDeclaringClass()
+          != ScopeProvider.class;
+    } catch (NoSuchMethodException e) {
+      return true;
+    }
+  }
+}
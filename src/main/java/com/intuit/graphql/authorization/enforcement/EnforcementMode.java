@@ -0,0 +1,19 @@
+package com.intuit.graphql.authorization.enforcement;
+
+/**
+ * Selects how fields a request is not permitted to are handled.
+ */
+public enum EnforcementMode {
+
+  /**
+   * Denied fields are removed from the operation before it is executed and an error is added to the result for each
+   * of them. The permitted part of the operation is still executed.
+   */
+  REDACT,
+
+  /**
+   * Denied fields are hidden from the schema the request is validated against, see {@link PolicyFieldVisibility}, so
+   * an operation selecting any of them fails validation and is not executed at all.
+   */
+  VALIDATE
+}
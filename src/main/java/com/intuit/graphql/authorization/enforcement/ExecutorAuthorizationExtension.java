@@ -0,0 +1,39 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import com.intuit.graphql.authorization.extension.AsyncAuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationEnvironment;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationResult;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Evaluates the fields of a synchronous extension concurrently, each decision as its own task of the executor.
+ */
+class ExecutorAuthorizationExtension implements AsyncAuthorizationExtension {
+
+  private final AuthorizationExtension delegate;
+  private final Executor executor;
+
+  ExecutorAuthorizationExtension(AuthorizationExtension delegate, Executor executor) {
+    this.delegate = delegate;
+    this.executor = executor;
+  }
+
+  @Override
+  public CompletableFuture<FieldAuthorizationResult> authorizeAsync(
+      FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+    return CompletableFuture.supplyAsync(() -> delegate.authorize(fieldAuthorizationEnvironment), executor);
+  }
+
+  @Override
+  public FieldAuthorizationResult authorize(FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+    return delegate.authorize(fieldAuthorizationEnvironment);
+  }
+
+  @Override
+  public AuthorizationTargets getTargets() {
+    return AuthorizationTargets.targetsOf(delegate);
+  }
+}
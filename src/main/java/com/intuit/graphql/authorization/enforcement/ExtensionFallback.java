@@ -0,0 +1,19 @@
+package com.intuit.graphql.authorization.enforcement;
+
+/**
+ * Decision taken for a field an {@link com.intuit.graphql.authorization.extension.AuthorizationExtension} did not
+ * decide on, because it failed, did not answer within the time budget of the request or was skipped by the circuit
+ * breaker.
+ */
+public enum ExtensionFallback {
+
+  /**
+   * The field is redacted and an error with the reason is added to the result.
+   */
+  DENY,
+
+  /**
+   * The field is authorized by the rules alone.
+   */
+  ALLOW
+}
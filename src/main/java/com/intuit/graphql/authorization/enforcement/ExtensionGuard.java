@@ -0,0 +1,327 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import com.intuit.graphql.authorization.extension.AsyncAuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
+import com.intuit.graphql.authorization.extension.BatchAuthorizationExtension;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationEnvironment;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationResult;
+import graphql.GraphqlErrorException;
+import graphql.language.SourceLocation;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounds the time the authorization extensions may take per request and stops asking an extension that keeps failing.
+ *
+ * All targeted fields of a request are requested at once and share one deadline. Fields still undecided when it
+ * expires, and fields whose decision failed, are decided by the {@link ExtensionFallback}. Failures and timeouts are
+ * recorded by a circuit breaker over the last {@value #WINDOW_SIZE} fields, and a request of at least
+ * {@value #MINIMUM_CALLS} fields is also judged on its own; once their share reaches the threshold the extension is
+ * skipped for the open duration, after which the fields of a single request are sent as a trial that closes the
+ * breaker if none of them fails.
+ *
+ * Synchronous extensions run on the executor so that the request can stop waiting for them. A timed out call that is
+ * still queued is skipped, but a running call is not interrupted: it keeps its executor thread until it returns and
+ * its result is ignored. The executor should therefore be bounded and reserved for extension calls.
+ */
+@Slf4j
+class ExtensionGuard {
+
+  static final Duration DEFAULT_CIRCUIT_OPEN_DURATION = Duration.ofSeconds(30);
+  static final String FALLBACK_EXTENSION = "authorizationFallback";
+  static final String TIMEOUT = "TIMEOUT";
+  static final String FAILURE = "FAILURE";
+  static final String CIRCUIT_OPEN = "CIRCUIT_OPEN";
+
+  private static final int WINDOW_SIZE = 20;
+  private static final int MINIMUM_CALLS = 10;
+  private static final String FALLBACK_ERROR_MESSAGE = "403 - Authorization extension did not decide on field=%s: %s";
+
+  private final Duration timeout;
+  private final ExtensionFallback fallback;
+  private final Double failureRateThreshold;
+  private final long openNanos;
+  private final Executor executor;
+  private final LongSupplier nanoClock;
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder shortCircuits = new LongAdder();
+  private final LongAdder circuitOpenings = new LongAdder();
+
+  private final boolean[] window = new boolean[WINDOW_SIZE];
+  private int windowCount;
+  private int windowIndex;
+  private int windowFailures;
+  private State state = State.CLOSED;
+  private long openUntilNanos;
+
+  private enum State {
+    CLOSED, OPEN, TRIAL
+  }
+
+  /**
+   * @param timeout time budget of the extension per request, no limit if null
+   * @param fallback decision for fields the extension did not decide on
+   * @param failureRateThreshold share of failed fields opening the circuit breaker, no breaker if null
+   * @param openDuration time the extension is skipped once the breaker opened
+   * @param executor runs synchronous extensions off the request thread, so that they can be timed out, required with a
+   * timeout
+   */
+  ExtensionGuard(Duration timeout, ExtensionFallback fallback, Double failureRateThreshold, Duration openDuration,
+      Executor executor) {
+    this(timeout, fallback, failureRateThreshold, openDuration, executor, System::nanoTime);
+  }
+
+  ExtensionGuard(Duration timeout, ExtensionFallback fallback, Double failureRateThreshold, Duration openDuration,
+      Executor executor, LongSupplier nanoClock) {
+    if (failureRateThreshold != null && (failureRateThreshold <= 0 || failureRateThreshold > 1)) {
+      throw new IllegalArgumentException("extensionFailureRateThreshold must be in (0, 1]");
+    }
+    if (timeout != null && executor == null) {
+      throw new IllegalArgumentException("extensionTimeout requires an extensionExecutor to run extensions on");
+    }
+    this.timeout = timeout;
+    this.fallback = fallback;
+    this.failureRateThreshold = failureRateThreshold;
+    this.openNanos = openDuration.toNanos();
+    this.executor = executor == null ? Runnable::run : executor;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * @param authorizationExtension extension of a request
+   * @return the extension, asking for all targeted fields of an operation at once within the limits of this guard
+   */
+  AuthorizationExtension guard(AuthorizationExtension authorizationExtension) {
+    if (AuthorizationTargets.targetsOf(authorizationExtension).isEmpty()) {
+      return authorizationExtension;
+    }
+    return new GuardedAuthorizationExtension(authorizationExtension);
+  }
+
+  ExtensionStats stats() {
+    return new ExtensionStats(calls.sum(), failures.sum(), timeouts.sum(), shortCircuits.sum(),
+        circuitOpenings.sum());
+  }
+
+  List<FieldAuthorizationResult> authorizeAll(AuthorizationExtension authorizationExtension,
+      List<FieldAuthorizationEnvironment> fieldAuthorizationEnvironments) {
+    long startNanos = nanoClock.getAsLong();
+    if (!allowsCall(startNanos)) {
+      shortCircuits.add(fieldAuthorizationEnvironments.size());
+      return fieldAuthorizationEnvironments.stream()
+          .map(fieldAuthorizationEnvironment -> fallback(fieldAuthorizationEnvironment, CIRCUIT_OPEN))
+          .collect(Collectors.toList());
+    }
+    calls.add(fieldAuthorizationEnvironments.size());
+    // every field counts as failed unless the results are complete, so that a trial always ends
+    int failed = fieldAuthorizationEnvironments.size();
+    try {
+      List<CompletableFuture<FieldAuthorizationResult>> futures = request(authorizationExtension,
+          fieldAuthorizationEnvironments);
+      await(futures, startNanos);
+
+      List<FieldAuthorizationResult> results = new ArrayList<>(futures.size());
+      int undecided = 0;
+      for (int i = 0; i < futures.size(); i++) {
+        CompletableFuture<FieldAuthorizationResult> future = futures.get(i);
+        FieldAuthorizationEnvironment fieldAuthorizationEnvironment = fieldAuthorizationEnvironments.get(i);
+        if (!future.isDone()) {
+          future.cancel(false);
+          timeouts.increment();
+          undecided++;
+          results.add(fallback(fieldAuthorizationEnvironment, TIMEOUT));
+        } else if (future.isCompletedExceptionally()) {
+          failures.increment();
+          undecided++;
+          results.add(fallback(fieldAuthorizationEnvironment, FAILURE));
+        } else {
+          results.add(future.join());
+        }
+      }
+      failed = undecided;
+      return results;
+    } finally {
+      record(fieldAuthorizationEnvironments.size() - failed, failed);
+    }
+  }
+
+  private List<CompletableFuture<FieldAuthorizationResult>> request(AuthorizationExtension authorizationExtension,
+      List<FieldAuthorizationEnvironment> fieldAuthorizationEnvironments) {
+    if (authorizationExtension instanceof AsyncAuthorizationExtension) {
+      AsyncAuthorizationExtension asyncExtension = (AsyncAuthorizationExtension) authorizationExtension;
+      return fieldAuthorizationEnvironments.stream()
+          .map(fieldAuthorizationEnvironment -> authorizeAsync(asyncExtension, fieldAuthorizationEnvironment))
+          .collect(Collectors.toList());
+    }
+    if (authorizationExtension instanceof BatchAuthorizationExtension) {
+      BatchAuthorizationExtension batchExtension = (BatchAuthorizationExtension) authorizationExtension;
+      CompletableFuture<List<FieldAuthorizationResult>> batch = supplyAsync(
+          () -> batchExtension.authorizeAll(fieldAuthorizationEnvironments));
+      List<CompletableFuture<FieldAuthorizationResult>> futures = new ArrayList<>();
+      for (int i = 0; i < fieldAuthorizationEnvironments.size(); i++) {
+        int index = i;
+        futures.add(batch.thenApply(results -> {
+          if (results.size() != fieldAuthorizationEnvironments.size()) {
+            throw new IllegalStateException("BatchAuthorizationExtension returned " + results.size()
+                + " results for " + fieldAuthorizationEnvironments.size() + " fields");
+          }
+          return results.get(index);
+        }));
+      }
+      return futures;
+    }
+    return fieldAuthorizationEnvironments.stream()
+        .map(fieldAuthorizationEnvironment -> supplyAsync(
+            () -> authorizationExtension.authorize(fieldAuthorizationEnvironment)))
+        .collect(Collectors.toList());
+  }
+
+  /*
+   * A call the executor rejects, e.g. because its queue is full, fails like a call that threw.
+   */
+  private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+    try {
+      return CompletableFuture.supplyAsync(supplier, executor);
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private static CompletableFuture<FieldAuthorizationResult> authorizeAsync(
+      AsyncAuthorizationExtension asyncExtension, FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+    try {
+      return asyncExtension.authorizeAsync(fieldAuthorizationEnvironment);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /*
+   * Waits for all decisions until the deadline of the request; the outcome of each field is read from its future
+   * afterwards.
+   */
+  private void await(List<CompletableFuture<FieldAuthorizationResult>> futures, long startNanos) {
+    CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    try {
+      if (timeout == null) {
+        all.get();
+      } else {
+        all.get(Math.max(0, timeout.toNanos() - (nanoClock.getAsLong() - startNanos)), TimeUnit.NANOSECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      log.debug("Authorization extension did not decide on all fields", e);
+    }
+  }
+
+  private FieldAuthorizationResult fallback(FieldAuthorizationEnvironment fieldAuthorizationEnvironment,
+      String reason) {
+    if (fallback == ExtensionFallback.ALLOW) {
+      return FieldAuthorizationResult.ALLOWED_FIELD_AUTH_RESULT;
+    }
+    GraphqlErrorException.Builder error = GraphqlErrorException.newErrorException()
+        .message(String.format(FALLBACK_ERROR_MESSAGE, fieldAuthorizationEnvironment.getFieldCoordinates(), reason))
+        .extensions(Collections.singletonMap(FALLBACK_EXTENSION, reason));
+    SourceLocation sourceLocation = fieldAuthorizationEnvironment.getField().getSourceLocation();
+    if (sourceLocation != null) {
+      error.sourceLocation(sourceLocation);
+    }
+    return FieldAuthorizationResult.createDeniedResult(error.build());
+  }
+
+  private synchronized boolean allowsCall(long nowNanos) {
+    if (failureRateThreshold == null || state == State.CLOSED) {
+      return true;
+    }
+    if (state == State.OPEN && nowNanos - openUntilNanos >= 0) {
+      state = State.TRIAL;
+      return true;
+    }
+    return false;
+  }
+
+  private synchronized void record(int succeeded, int failed) {
+    if (failureRateThreshold == null) {
+      return;
+    }
+    if (state == State.TRIAL) {
+      if (failed > 0) {
+        open();
+      } else {
+        state = State.CLOSED;
+      }
+      return;
+    }
+    if (state != State.CLOSED) {
+      return;
+    }
+    // a request with enough fields is judged on its own, as it would push its own failures out of the window
+    int total = succeeded + failed;
+    if (total >= MINIMUM_CALLS && failed >= failureRateThreshold * total) {
+      open();
+      return;
+    }
+    for (int i = 0; i < total; i++) {
+      boolean failure = i < failed;
+      if (windowCount == WINDOW_SIZE) {
+        windowFailures -= window[windowIndex] ? 1 : 0;
+      } else {
+        windowCount++;
+      }
+      window[windowIndex] = failure;
+      windowFailures += failure ? 1 : 0;
+      windowIndex = (windowIndex + 1) % WINDOW_SIZE;
+    }
+    if (windowCount >= MINIMUM_CALLS && windowFailures >= failureRateThreshold * windowCount) {
+      open();
+    }
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openUntilNanos = nanoClock.getAsLong() + openNanos;
+    windowCount = 0;
+    windowIndex = 0;
+    windowFailures = 0;
+    circuitOpenings.increment();
+    log.warn("Authorization extension circuit breaker opened for {} ms", TimeUnit.NANOSECONDS.toMillis(openNanos));
+  }
+
+  private class GuardedAuthorizationExtension implements BatchAuthorizationExtension {
+
+    private final AuthorizationExtension delegate;
+
+    private GuardedAuthorizationExtension(AuthorizationExtension delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public List<FieldAuthorizationResult> authorizeAll(
+        List<FieldAuthorizationEnvironment> fieldAuthorizationEnvironments) {
+      return ExtensionGuard.this.authorizeAll(delegate, fieldAuthorizationEnvironments);
+    }
+
+    @Override
+    public AuthorizationTargets getTargets() {
+      return AuthorizationTargets.targetsOf(delegate);
+    }
+  }
+}
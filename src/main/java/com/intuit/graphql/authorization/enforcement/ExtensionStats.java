@@ -0,0 +1,43 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters of the fields sent to authorization extensions, see {@code extensionTimeout} and
+ * {@code extensionFailureRateThreshold}.
+ */
+@Value
+public class ExtensionStats {
+
+  /**
+   * Fields the extensions were asked about.
+   */
+  long callCount;
+
+  /**
+   * Fields whose decision failed.
+   */
+  long failureCount;
+
+  /**
+   * Fields still undecided when the time budget of their request expired.
+   */
+  long timeoutCount;
+
+  /**
+   * Fields not sent to the extension because the circuit breaker was open.
+   */
+  long shortCircuitCount;
+
+  /**
+   * Times the circuit breaker opened.
+   */
+  long circuitOpenCount;
+
+  /**
+   * @return fields decided by the fallback instead of the extension
+   */
+  public long fallbackCount() {
+    return failureCount + timeoutCount + shortCircuitCount;
+  }
+}
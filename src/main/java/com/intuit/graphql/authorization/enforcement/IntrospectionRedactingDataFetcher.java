@@ -2,63 +2,172 @@ package com.intuit.graphql.authorization.enforcement;
 
 import static graphql.introspection.Introspection.__Type;
 
+import com.intuit.graphql.authorization.util.BoundedCache;
 import com.intuit.graphql.authorization.util.GraphQLUtil;
+import graphql.introspection.Introspection;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLFieldsContainer;
 import graphql.schema.GraphQLNamedType;
+import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLType;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class IntrospectionRedactingDataFetcher implements DataFetcher {
 
+  private static final String FIELDS = "fields";
+
+  /*
+   * The introspection fields whose results are filtered: every list of __Type, i.e. __Schema.types,
+   * __Type.interfaces and __Type.possibleTypes, and __Type.fields.
+   */
+  private static final Set<GraphQLFieldDefinition> REDACTED_INTROSPECTION_FIELDS = Stream
+      .of(Introspection.__Schema, __Type)
+      .flatMap(type -> type.getFieldDefinitions().stream()
+          .filter(fieldDefinition -> isRedactedByType(type, fieldDefinition)))
+      .collect(Collectors.toCollection(() -> Collections.newSetFromMap(new IdentityHashMap<>())));
+
   private final DataFetcher delegate;
   private final AuthzInstrumentation.AuthzInstrumentationState state;
+  private final boolean redactsFields;
+  private final BoundedCache<Key, List<?>> redactedLists;
 
-  public IntrospectionRedactingDataFetcher(DataFetcher delegate, AuthzInstrumentation.AuthzInstrumentationState state) {
+  /**
+   * @param delegate fetcher of the introspection field
+   * @param state state of the current request
+   * @param redactsFields true for {@code __Type.fields}, false for the lists of types
+   * @param redactedLists filtered results shared by the requests of the same instrumentation, null to filter per
+   * request
+   */
+  public IntrospectionRedactingDataFetcher(DataFetcher delegate, AuthzInstrumentation.AuthzInstrumentationState state,
+      boolean redactsFields, BoundedCache<Key, List<?>> redactedLists) {
     this.state = state;
     this.delegate = delegate;
+    this.redactsFields = redactsFields;
+    this.redactedLists = redactedLists;
+  }
+
+  /**
+   * @param parentType type declaring the fetched field
+   * @param fieldDefinition the fetched field
+   * @return true if the result of the field has to be filtered by the permissions of the request
+   */
+  static boolean isRedactedIntrospectionField(GraphQLObjectType parentType, GraphQLFieldDefinition fieldDefinition) {
+    if (REDACTED_INTROSPECTION_FIELDS.contains(fieldDefinition)) {
+      return true;
+    }
+    //introspection types of a transformed schema are not the shared instances
+    return GraphQLUtil.isReservedSchemaType(parentType) && isRedactedByType(parentType, fieldDefinition);
+  }
+
+  private static boolean isRedactedByType(GraphQLObjectType parentType, GraphQLFieldDefinition fieldDefinition) {
+    return GraphQLUtil.isListOfIntrospection__Type(fieldDefinition.getType())
+        || isFieldsOfType(parentType, fieldDefinition);
   }
 
+  static boolean isFieldsOfType(GraphQLObjectType parentType, GraphQLFieldDefinition fieldDefinition) {
+    return __Type.getName().equals(parentType.getName()) && FIELDS.equals(fieldDefinition.getName());
+  }
+
+  /*
+   * The result of an introspection field only depends on its source, its arguments and the permissions of the request,
+   * so it is filtered once per verifier and then served from the cache until the policy is reloaded. Without a cache
+   * it is filtered for every request.
+   */
   @Override
   public Object get(DataFetchingEnvironment environment) throws Exception {
-    Object delegatedGetResult = delegate.get(environment);
-    if (delegatedGetResult != null) {
-      if (GraphQLUtil.isListOfIntrospection__Type(environment.getFieldType())) {
-        //would be nice if there were no type erasure for generics
-        return redactTypeList((List<GraphQLNamedType>) delegatedGetResult);
-      }
-
-      //used for introspection of fields
-      //Note: Since fieldsDatafetcher is now private, we are getting it from codeRegistry
-      if (delegate == fieldsDataFetcher(environment)) {
-        Object type = environment.getSource();
-        return redactFields(
-            (List<GraphQLFieldDefinition>) delegatedGetResult,
-            (GraphQLFieldsContainer) type);
+    try {
+      if (redactedLists == null) {
+        return redact(environment);
       }
+      Key key = new Key(state.getPermissionVerifier(), environment.getSource(), environment.getFieldDefinition(),
+          environment.getArguments());
+      return redactedLists.get(key, k -> redact(environment));
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
     }
-    return delegatedGetResult;
   }
 
-  private DataFetcher fieldsDataFetcher(DataFetchingEnvironment environment) {
-    return environment.getGraphQLSchema().getCodeRegistry().getDataFetcher(__Type,
-        __Type.getFieldDefinition("fields"));
+  private List<?> redact(DataFetchingEnvironment environment) {
+    Object delegatedGetResult;
+    try {
+      delegatedGetResult = delegate.get(environment);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    }
+    if (delegatedGetResult == null) {
+      return null;
+    }
+    if (redactsFields) {
+      return redactFields((List<GraphQLFieldDefinition>) delegatedGetResult, environment.getSource());
+    }
+    //would be nice if there were no type erasure for generics
+    return redactTypeList((List<GraphQLNamedType>) delegatedGetResult);
   }
 
   private List<GraphQLFieldDefinition> redactFields(List<GraphQLFieldDefinition> fields,
       GraphQLFieldsContainer fieldsContainer) {
     return fields.stream().filter(fieldDefinition ->
-        state.getTypeFieldPermissionVerifier().isPermitted(fieldsContainer, fieldDefinition))
-        .collect(Collectors.toList());
+        state.getPermissionVerifier().isPermitted(fieldsContainer, fieldDefinition))
+        .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
   }
 
   private List<GraphQLType> redactTypeList(List<GraphQLNamedType> fields) {
     return fields.stream()
-        .filter(type -> state.getTypeFieldPermissionVerifier().isPermitted(type))
-        .collect(Collectors.toList());
+        .filter(type -> state.getPermissionVerifier().isPermitted(type))
+        .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+  }
+
+  /*
+   * Verifiers are shared by all scope combinations granting the same permissions, so the verifier stands for the
+   * effective permissions of a request. Verifiers, sources and field definitions are compared by identity.
+   */
+  static final class Key {
+
+    private final PermissionVerifier permissionVerifier;
+    private final Object source;
+    private final GraphQLFieldDefinition fieldDefinition;
+    private final Map<String, Object> arguments;
+    private final int hash;
+
+    Key(PermissionVerifier permissionVerifier, Object source, GraphQLFieldDefinition fieldDefinition,
+        Map<String, Object> arguments) {
+      this.permissionVerifier = permissionVerifier;
+      this.source = source;
+      this.fieldDefinition = fieldDefinition;
+      this.arguments = arguments;
+      this.hash = Objects.hash(System.identityHashCode(permissionVerifier), System.identityHashCode(source),
+          System.identityHashCode(fieldDefinition), arguments);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return permissionVerifier == that.permissionVerifier && source == that.source
+          && fieldDefinition == that.fieldDefinition && Objects.equals(arguments, that.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
   }
 
 }
@@ -0,0 +1,19 @@
+package com.intuit.graphql.authorization.enforcement;
+
+/**
+ * Selects how the compiled rules are represented when permissions are verified.
+ */
+public enum PolicyEngine {
+
+  /**
+   * Type and field names are looked up in merged string maps, see {@link TypeFieldPermissionVerifier}.
+   */
+  TYPE_FIELD_MAP,
+
+  /**
+   * Every type and field coordinate of the schema gets a dense integer id and the grants of each scope are compiled
+   * into bit arrays. Scopes are combined with a bitwise OR and each check is an array index plus a bit test, see
+   * {@link BitSetPermissionVerifier}.
+   */
+  BITSET
+}
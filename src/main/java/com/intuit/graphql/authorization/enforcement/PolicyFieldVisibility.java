@@ -0,0 +1,50 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLInputFieldsContainer;
+import graphql.schema.GraphQLInputObjectField;
+import graphql.schema.visibility.GraphqlFieldVisibility;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Field visibility hiding the fields a permissions verifier does not permit, on top of the visibility the schema
+ * already had. Input fields are not restricted.
+ */
+class PolicyFieldVisibility implements GraphqlFieldVisibility {
+
+  private final GraphqlFieldVisibility delegate;
+  private final PermissionVerifier permissionVerifier;
+
+  PolicyFieldVisibility(GraphqlFieldVisibility delegate, PermissionVerifier permissionVerifier) {
+    this.delegate = delegate;
+    this.permissionVerifier = permissionVerifier;
+  }
+
+  @Override
+  public List<GraphQLFieldDefinition> getFieldDefinitions(GraphQLFieldsContainer fieldsContainer) {
+    return delegate.getFieldDefinitions(fieldsContainer).stream()
+        .filter(fieldDefinition -> permissionVerifier.isPermitted(fieldsContainer, fieldDefinition))
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public GraphQLFieldDefinition getFieldDefinition(GraphQLFieldsContainer fieldsContainer, String fieldName) {
+    GraphQLFieldDefinition fieldDefinition = delegate.getFieldDefinition(fieldsContainer, fieldName);
+    if (fieldDefinition == null || !permissionVerifier.isPermitted(fieldsContainer, fieldDefinition)) {
+      return null;
+    }
+    return fieldDefinition;
+  }
+
+  @Override
+  public List<GraphQLInputObjectField> getFieldDefinitions(GraphQLInputFieldsContainer fieldsContainer) {
+    return delegate.getFieldDefinitions(fieldsContainer);
+  }
+
+  @Override
+  public GraphQLInputObjectField getFieldDefinition(GraphQLInputFieldsContainer fieldsContainer, String fieldName) {
+    return delegate.getFieldDefinition(fieldsContainer, fieldName);
+  }
+}
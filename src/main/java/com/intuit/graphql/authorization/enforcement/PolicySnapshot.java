@@ -0,0 +1,18 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import com.intuit.graphql.authorization.rules.CompiledRules;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * An immutable, versioned snapshot of the compiled authorization rules. A request keeps using the snapshot it started
+ * with, even if a newer one is published while it executes.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PolicySnapshot {
+
+  private final long version;
+  private final AuthorizationHolder authorizationHolder;
+  private final CompiledRules compiledRules;
+}
@@ -0,0 +1,169 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import com.intuit.graphql.authorization.enforcement.AuthzInstrumentation.AuthzInstrumentationState;
+import com.intuit.graphql.authorization.util.ScopeSet;
+import graphql.Directives;
+import graphql.GraphQLError;
+import graphql.execution.ExecutionContext;
+import graphql.language.Argument;
+import graphql.language.Directive;
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+import graphql.language.Node;
+import graphql.language.OperationDefinition;
+import graphql.language.SourceLocation;
+import graphql.language.VariableReference;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLSchema;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The outcome of redacting an operation for one set of permissions, kept so that later executions of the same parsed
+ * document can reuse it.
+ *
+ * An operation whose {@code @skip} or {@code @include} directives depend on variables is redacted differently
+ * depending on the variables of the request and is represented by {@link #VARIABLE_DEPENDENT}, which is never
+ * applied.
+ */
+class RedactedOperation {
+
+  static final RedactedOperation VARIABLE_DEPENDENT = new RedactedOperation(null, null, Collections.emptyList(),
+      Collections.emptyMap(), 0);
+
+  private final OperationDefinition operationDefinition;
+  private final Map<String, FragmentDefinition> fragmentsByName;
+  private final List<GraphQLError> authzErrors;
+  private final Map<FieldCoordinates, List<SourceLocation>> deniedFields;
+  private final int deniedFieldCount;
+
+  private RedactedOperation(OperationDefinition operationDefinition, Map<String, FragmentDefinition> fragmentsByName,
+      List<GraphQLError> authzErrors, Map<FieldCoordinates, List<SourceLocation>> deniedFields, int deniedFieldCount) {
+    this.operationDefinition = operationDefinition;
+    this.fragmentsByName = fragmentsByName;
+    this.authzErrors = authzErrors;
+    this.deniedFields = deniedFields;
+    this.deniedFieldCount = deniedFieldCount;
+  }
+
+  /**
+   * @param original execution context before redaction
+   * @param redacted execution context after redaction, the same instance if nothing was redacted
+   * @param redactionState state the errors and denied fields were recorded in while redacting
+   */
+  static RedactedOperation of(ExecutionContext original, ExecutionContext redacted,
+      AuthzInstrumentationState redactionState) {
+    List<GraphQLError> authzErrors = Collections.unmodifiableList(new ArrayList<>(redactionState.getAuthzErrors()));
+    Map<FieldCoordinates, List<SourceLocation>> deniedFields = Collections.unmodifiableMap(
+        new LinkedHashMap<>(redactionState.getDeniedFields()));
+    if (original == redacted) {
+      return new RedactedOperation(null, null, authzErrors, deniedFields, redactionState.getDeniedFieldCount());
+    }
+    return new RedactedOperation(redacted.getOperationDefinition(), redacted.getFragmentsByName(), authzErrors,
+        deniedFields, redactionState.getDeniedFieldCount());
+  }
+
+  /**
+   * Requests whose scopes grant the same permissions share the verifier and therefore the redaction. Only if the
+   * errors recorded for a denied field may depend on the scopes of the request, the scopes are part of the key.
+   *
+   * @param scopeDependentErrors true if the errors of the redaction depend on the scopes, not only on the permissions
+   */
+  static Key key(ExecutionContext executionContext, AuthzInstrumentationState state, boolean scopeDependentErrors) {
+    return new Key(executionContext.getDocument(), executionContext.getGraphQLSchema(),
+        executionContext.getOperationDefinition().getName(), state.getPermissionVerifier(),
+        scopeDependentErrors ? state.getScopeSet() : null, state.getPolicyVersion());
+  }
+
+  /**
+   * Records the errors and denied fields of the redaction in the state of the current request and returns its execution context with
+   * the redacted operation and fragments.
+   */
+  ExecutionContext applyTo(ExecutionContext executionContext, AuthzInstrumentationState state) {
+    state.getAuthzErrors().addAll(authzErrors);
+    state.addDeniedFields(deniedFields, deniedFieldCount);
+    if (operationDefinition == null) {
+      return executionContext;
+    }
+    return executionContext.transform(builder -> builder
+        .operationDefinition(operationDefinition)
+        .fragmentsByName(fragmentsByName));
+  }
+
+  /**
+   * @param node a parsed document or one of its nodes
+   * @return true if a {@code @skip} or {@code @include} directive below the node takes a variable
+   */
+  static boolean isVariableDependent(Node<?> node) {
+    if (node instanceof Directive) {
+      Directive directive = (Directive) node;
+      if (Directives.SkipDirective.getName().equals(directive.getName())
+          || Directives.IncludeDirective.getName().equals(directive.getName())) {
+        for (Argument argument : directive.getArguments()) {
+          if (argument.getValue() instanceof VariableReference) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+    for (Node<?> child : node.getChildren()) {
+      if (isVariableDependent(child)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Documents and schemas are compared by identity: a document is only reused if the application caches parsed
+   * documents, e.g. with a PreparsedDocumentProvider. Verifiers are compared by identity, as they are shared by
+   * all scope combinations granting the same permissions. Scope sets, if part of the key, are compared by identity
+   * when interned and by their scopes otherwise.
+   */
+  static final class Key {
+
+    private final Document document;
+    private final GraphQLSchema schema;
+    private final String operationName;
+    private final PermissionVerifier permissionVerifier;
+    private final ScopeSet scopeSet;
+    private final long policyVersion;
+    private final int hash;
+
+    private Key(Document document, GraphQLSchema schema, String operationName, PermissionVerifier permissionVerifier,
+        ScopeSet scopeSet, long policyVersion) {
+      this.document = document;
+      this.schema = schema;
+      this.operationName = operationName;
+      this.permissionVerifier = permissionVerifier;
+      this.scopeSet = scopeSet;
+      this.policyVersion = policyVersion;
+      this.hash = Objects.hash(System.identityHashCode(document), System.identityHashCode(schema), operationName,
+          System.identityHashCode(permissionVerifier), scopeSet, policyVersion);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return document == that.document && schema == that.schema && permissionVerifier == that.permissionVerifier
+          && Objects.equals(scopeSet, that.scopeSet) && policyVersion == that.policyVersion
+          && Objects.equals(operationName, that.operationName);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -1,14 +1,13 @@
 package com.intuit.graphql.authorization.enforcement;
 
-import static graphql.ErrorType.DataFetchingException;
 import static graphql.schema.GraphQLTypeUtil.unwrapAll;
 
 import com.intuit.graphql.authorization.extension.AuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
 import com.intuit.graphql.authorization.extension.FieldAuthorizationEnvironment;
 import com.intuit.graphql.authorization.extension.FieldAuthorizationResult;
 import com.intuit.graphql.authorization.util.ScopeProvider;
 import graphql.GraphQLError;
-import graphql.GraphqlErrorBuilder;
 import graphql.analysis.QueryVisitorFieldEnvironment;
 import graphql.analysis.QueryVisitorStub;
 import graphql.execution.ExecutionContext;
@@ -23,23 +22,35 @@ import lombok.extern.slf4j.Slf4j;
 public class RedactingVisitor extends QueryVisitorStub {
 
   private final AuthzInstrumentation.AuthzInstrumentationState instrumentationState;
-  private final TypeFieldPermissionVerifier typeFieldPermissionVerifier;
+  private final PermissionVerifier permissionVerifier;
   private final ExecutionContext executionContext;
   private final AuthzListener authzListener;
   private final AuthorizationExtension authorizationExtension;
+  private final AuthorizationTargets authorizationTargets;
 
-  private final ScopeProvider scopeProvider;
+  private final DeniedFieldErrors deniedFieldErrors;
+  private final AuthzErrorStrategy errorStrategy;
 
 
   public RedactingVisitor(AuthzInstrumentation.AuthzInstrumentationState state,
                           ExecutionContext executionContext, AuthzListener authzListener,
                           AuthorizationExtension authorizationExtension, ScopeProvider scopeProvider) {
+    this(state, executionContext, authzListener, authorizationExtension, new DeniedFieldErrors(scopeProvider),
+        AuthzErrorStrategy.PER_FIELD);
+  }
+
+  RedactingVisitor(AuthzInstrumentation.AuthzInstrumentationState state,
+                   ExecutionContext executionContext, AuthzListener authzListener,
+                   AuthorizationExtension authorizationExtension, DeniedFieldErrors deniedFieldErrors,
+                   AuthzErrorStrategy errorStrategy) {
     this.instrumentationState = state;
     this.executionContext = executionContext;
     this.authzListener = authzListener;
     this.authorizationExtension = authorizationExtension;
-    this.typeFieldPermissionVerifier = instrumentationState.getTypeFieldPermissionVerifier();
-    this.scopeProvider = scopeProvider;
+    this.authorizationTargets = AuthorizationTargets.targetsOf(authorizationExtension);
+    this.permissionVerifier = instrumentationState.getPermissionVerifier();
+    this.deniedFieldErrors = deniedFieldErrors;
+    this.errorStrategy = errorStrategy;
   }
 
   @Override
@@ -47,30 +58,29 @@ public class RedactingVisitor extends QueryVisitorStub {
     final GraphQLUnmodifiedType graphQLUnmodifiedParentType = unwrapAll(queryVisitorFieldEnvironment.getParentType());
     GraphQLFieldDefinition requestedFieldDefinition = queryVisitorFieldEnvironment.getFieldDefinition();
 
-    boolean permitted = typeFieldPermissionVerifier.isPermitted(graphQLUnmodifiedParentType, requestedFieldDefinition);
+    boolean permitted = permissionVerifier.isPermitted(graphQLUnmodifiedParentType, requestedFieldDefinition);
 
     if (!permitted) {
       //record an error
-      String parentName = graphQLUnmodifiedParentType.getName();
       authzListener.onFieldRedaction(executionContext, queryVisitorFieldEnvironment);
       Field field = queryVisitorFieldEnvironment.getField();
 
-      String errorMessage = scopeProvider.getErrorMessage(RedactionContext.builder()
-              .fieldCoordinates(FieldCoordinates.coordinates(parentName, field.getName()))
-              .field(field)
-              .build());
-
-      GraphQLError error = GraphqlErrorBuilder.newError()
-          .errorType(DataFetchingException)
-          .message(errorMessage)
-          .location(field.getSourceLocation())
-          .build();
-      instrumentationState.getAuthzErrors().add(error);
+      if (errorStrategy == AuthzErrorStrategy.PER_FIELD) {
+        GraphQLError error = deniedFieldErrors.create(graphQLUnmodifiedParentType, requestedFieldDefinition, field,
+            instrumentationState.getScopeSet());
+        instrumentationState.getAuthzErrors().add(error);
+      } else {
+        //reported once for the whole request, see AuthzInstrumentation.instrumentExecutionResult
+        instrumentationState.addDeniedField(
+            FieldCoordinates.coordinates(graphQLUnmodifiedParentType.getName(), field.getName()),
+            field.getSourceLocation());
+      }
 
       TreeTransformerUtil.deleteNode(queryVisitorFieldEnvironment.getTraverserContext());
-    } else {
-      FieldAuthorizationEnvironment fieldAuthorizationEnvironment = createFieldAuthorizationEnvironment(queryVisitorFieldEnvironment);
-      FieldAuthorizationResult fieldAuthorizationResult = authorizationExtension.authorize(fieldAuthorizationEnvironment);
+    } else if (authorizationTargets.appliesTo(graphQLUnmodifiedParentType, requestedFieldDefinition)) {
+      FieldAuthorizationResult fieldAuthorizationResult = authorizationExtension instanceof BatchAuthorization
+          ? ((BatchAuthorization) authorizationExtension).getResult(queryVisitorFieldEnvironment.getField())
+          : authorizationExtension.authorize(createFieldAuthorizationEnvironment(queryVisitorFieldEnvironment));
       if (!fieldAuthorizationResult.isAllowed()) {
         authzListener.onFieldRedaction(executionContext, queryVisitorFieldEnvironment);
         instrumentationState.getAuthzErrors().add(fieldAuthorizationResult.getGraphqlErrorException());
@@ -79,7 +89,7 @@ public class RedactingVisitor extends QueryVisitorStub {
     }
   }
 
-  private FieldAuthorizationEnvironment createFieldAuthorizationEnvironment(
+  static FieldAuthorizationEnvironment createFieldAuthorizationEnvironment(
       QueryVisitorFieldEnvironment queryVisitorFieldEnvironment) {
 
     GraphQLUnmodifiedType parentType = unwrapAll(queryVisitorFieldEnvironment.getParentType());
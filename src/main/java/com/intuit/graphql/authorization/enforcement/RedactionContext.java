@@ -1,5 +1,6 @@
 package com.intuit.graphql.authorization.enforcement;
 
+import com.intuit.graphql.authorization.util.ScopeSet;
 import graphql.language.Field;
 import graphql.schema.FieldCoordinates;
 import lombok.Builder;
@@ -10,4 +11,5 @@ import lombok.Getter;
 public class RedactionContext {
     Field field;
     FieldCoordinates fieldCoordinates;
+    ScopeSet scopeSet;
 }
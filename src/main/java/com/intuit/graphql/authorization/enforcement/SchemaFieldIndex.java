@@ -0,0 +1,143 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static graphql.schema.GraphQLTypeUtil.unwrapAll;
+
+import graphql.introspection.Introspection;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLNamedType;
+import graphql.schema.GraphQLSchema;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Assigns a dense integer id to every named type and every field coordinate of a schema.
+ *
+ * Types and field definitions of the indexed schema are looked up by object identity, so checks made with the
+ * {@link GraphQLNamedType} and {@link GraphQLFieldDefinition} instances of a query traversal do no string work. Type
+ * and field names are only used as a fallback for instances that do not belong to the indexed schema.
+ */
+class SchemaFieldIndex {
+
+  static final int UNKNOWN = -1;
+
+  /**
+   * Field id of fields that are permitted regardless of the rules, i.e. {@code __schema} on the query type.
+   */
+  static final int ALWAYS_PERMITTED = -2;
+
+  private final Map<String, TypeSlot> typeSlots;
+  private final Map<GraphQLNamedType, TypeSlot> typeSlotsByType;
+  private final int typeCount;
+  private final int fieldCount;
+
+  private SchemaFieldIndex(Map<String, TypeSlot> typeSlots, Map<GraphQLNamedType, TypeSlot> typeSlotsByType,
+      int typeCount, int fieldCount) {
+    this.typeSlots = typeSlots;
+    this.typeSlotsByType = typeSlotsByType;
+    this.typeCount = typeCount;
+    this.fieldCount = fieldCount;
+  }
+
+  static SchemaFieldIndex of(GraphQLSchema schema) {
+    Map<String, TypeSlot> typeSlots = new HashMap<>();
+    Map<GraphQLNamedType, TypeSlot> typeSlotsByType = new IdentityHashMap<>();
+    int typeId = 0;
+    int fieldId = 0;
+    for (GraphQLNamedType type : schema.getAllTypesAsList()) {
+      boolean queryRoot = type == schema.getQueryType();
+      Map<String, Integer> fieldIds = new HashMap<>();
+      Map<GraphQLFieldDefinition, Integer> fieldIdsByDefinition = new IdentityHashMap<>();
+      if (type instanceof GraphQLFieldsContainer) {
+        for (GraphQLFieldDefinition fieldDefinition : ((GraphQLFieldsContainer) type).getFieldDefinitions()) {
+          int id = fieldId++;
+          if (queryRoot && unwrapAll(fieldDefinition.getType()) == Introspection.__Schema) {
+            id = ALWAYS_PERMITTED;
+          }
+          fieldIds.put(fieldDefinition.getName(), id);
+          fieldIdsByDefinition.put(fieldDefinition, id);
+        }
+      }
+      if (queryRoot) {
+        fieldIds.put(Introspection.SchemaMetaFieldDef.getName(), ALWAYS_PERMITTED);
+        fieldIdsByDefinition.put(Introspection.SchemaMetaFieldDef, ALWAYS_PERMITTED);
+      }
+      TypeSlot typeSlot = new TypeSlot(typeId++,
+          TypeFieldPermissionVerifier.isTypeSpecial(type),
+          Collections.unmodifiableMap(fieldIds),
+          Collections.unmodifiableMap(fieldIdsByDefinition));
+      typeSlots.put(type.getName(), typeSlot);
+      typeSlotsByType.put(type, typeSlot);
+    }
+    return new SchemaFieldIndex(Collections.unmodifiableMap(typeSlots),
+        Collections.unmodifiableMap(typeSlotsByType), typeId, fieldId);
+  }
+
+  int getTypeCount() {
+    return typeCount;
+  }
+
+  int getFieldCount() {
+    return fieldCount;
+  }
+
+  int typeId(String typeName) {
+    TypeSlot typeSlot = typeSlots.get(typeName);
+    return typeSlot == null ? UNKNOWN : typeSlot.typeId;
+  }
+
+  int fieldId(String typeName, String fieldName) {
+    TypeSlot typeSlot = typeSlots.get(typeName);
+    if (typeSlot == null) {
+      return UNKNOWN;
+    }
+    Integer fieldId = typeSlot.fieldIds.get(fieldName);
+    return fieldId == null ? UNKNOWN : fieldId;
+  }
+
+  /**
+   * @param type a named type
+   * @return the slot of the type, or null if the schema has no type of that name
+   */
+  TypeSlot typeSlot(GraphQLNamedType type) {
+    TypeSlot typeSlot = typeSlotsByType.get(type);
+    return typeSlot != null ? typeSlot : typeSlots.get(type.getName());
+  }
+
+  static class TypeSlot {
+
+    private final int typeId;
+    private final boolean special;
+    private final Map<String, Integer> fieldIds;
+    private final Map<GraphQLFieldDefinition, Integer> fieldIdsByDefinition;
+
+    private TypeSlot(int typeId, boolean special, Map<String, Integer> fieldIds,
+        Map<GraphQLFieldDefinition, Integer> fieldIdsByDefinition) {
+      this.typeId = typeId;
+      this.special = special;
+      this.fieldIds = fieldIds;
+      this.fieldIdsByDefinition = fieldIdsByDefinition;
+    }
+
+    int getTypeId() {
+      return typeId;
+    }
+
+    /**
+     * @return true for reserved introspection types and input types, which are always permitted
+     */
+    boolean isSpecial() {
+      return special;
+    }
+
+    int fieldId(GraphQLFieldDefinition fieldDefinition) {
+      Integer fieldId = fieldIdsByDefinition.get(fieldDefinition);
+      if (fieldId == null) {
+        fieldId = fieldIds.get(fieldDefinition.getName());
+      }
+      return fieldId == null ? UNKNOWN : fieldId;
+    }
+  }
+}
@@ -10,6 +10,7 @@ import graphql.schema.GraphQLSchema;
 import graphql.schema.GraphQLTypeUtil;
 import java.util.Map;
 import java.util.Set;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.SetUtils;
@@ -18,6 +19,7 @@ public class TypeFieldPermissionVerifier implements PermissionVerifier {
 
   @Getter
   private final Map<String, Set<String>> typeToFieldsMap;
+  @Getter(AccessLevel.PACKAGE)
   private final GraphQLSchema schema;
 
   TypeFieldPermissionVerifier(GraphQLSchema schema, Map<String, Set<String>> typeToFieldsMap) {
@@ -47,7 +49,7 @@ public class TypeFieldPermissionVerifier implements PermissionVerifier {
     return fields.contains(fieldDefinition.getName());
   }
 
-  private boolean isTypeSpecial(GraphQLNamedType parentType) {
+  static boolean isTypeSpecial(GraphQLNamedType parentType) {
     //input types are permitted
     //schema types are permitted
     return GraphQLUtil.isReservedSchemaType(parentType) || GraphQLTypeUtil.isInput(parentType);
@@ -0,0 +1,35 @@
+package com.intuit.graphql.authorization.extension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * An {@link AuthorizationExtension} whose decisions complete asynchronously, e.g. with a non-blocking client of an
+ * external policy decision point. The targeted fields of an operation are all requested before any result is awaited,
+ * so independent decisions are evaluated concurrently and the operation waits once for the slowest of them.
+ */
+public interface AsyncAuthorizationExtension extends BatchAuthorizationExtension {
+
+  /**
+   * @param fieldAuthorizationEnvironment the field to authorize
+   * @return the decision, completed exceptionally if the field could not be authorized
+   */
+  CompletableFuture<FieldAuthorizationResult> authorizeAsync(
+      FieldAuthorizationEnvironment fieldAuthorizationEnvironment);
+
+  @Override
+  default List<FieldAuthorizationResult> authorizeAll(
+      List<FieldAuthorizationEnvironment> fieldAuthorizationEnvironments) {
+    List<CompletableFuture<FieldAuthorizationResult>> futures = fieldAuthorizationEnvironments.stream()
+        .map(this::authorizeAsync)
+        .collect(Collectors.toList());
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+    return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+  }
+}
@@ -11,4 +11,15 @@ import com.intuit.graphql.authorization.enforcement.TypeFieldPermissionVerifier;
 public interface AuthorizationExtension {
 
   FieldAuthorizationResult authorize(FieldAuthorizationEnvironment fieldAuthorizationEnvironment);
+
+  /**
+   * Declares the fields {@link #authorize(FieldAuthorizationEnvironment)} has to be called for. No
+   * {@link FieldAuthorizationEnvironment} is created for any other permitted field. Called a few times per request,
+   * so the targets should be prepared once and returned as is.
+   *
+   * @return targeted fields, every field by default
+   */
+  default AuthorizationTargets getTargets() {
+    return AuthorizationTargets.ALL_FIELDS;
+  }
 }
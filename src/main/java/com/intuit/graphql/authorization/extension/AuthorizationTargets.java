@@ -0,0 +1,91 @@
+package com.intuit.graphql.authorization.extension;
+
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLNamedType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields an {@link AuthorizationExtension} has to be asked about, see {@link AuthorizationExtension#getTargets()}.
+ * Fields are selected by the name of their parent type, e.g. every field of {@code Book}, or by their coordinates,
+ * e.g. {@code Query.bookById}. Every other field is authorized by the rules alone.
+ */
+public final class AuthorizationTargets {
+
+  public static final AuthorizationTargets ALL_FIELDS = new AuthorizationTargets(true, Collections.emptySet(),
+      Collections.emptyMap());
+
+  public static final AuthorizationTargets NO_FIELDS = new AuthorizationTargets(false, Collections.emptySet(),
+      Collections.emptyMap());
+
+  private final boolean allFields;
+  private final Set<String> typeNames;
+  private final Map<String, Set<String>> fieldNamesByType;
+
+  private AuthorizationTargets(boolean allFields, Set<String> typeNames, Map<String, Set<String>> fieldNamesByType) {
+    this.allFields = allFields;
+    this.typeNames = typeNames;
+    this.fieldNamesByType = fieldNamesByType;
+  }
+
+  /**
+   * @param typeNames names of the types whose fields are all targeted
+   * @param fieldCoordinates coordinates of single targeted fields
+   * @return targets holding the given types and fields
+   */
+  public static AuthorizationTargets of(Collection<String> typeNames, Collection<FieldCoordinates> fieldCoordinates) {
+    Map<String, Set<String>> fieldNamesByType = new HashMap<>();
+    for (FieldCoordinates coordinates : fieldCoordinates) {
+      fieldNamesByType.computeIfAbsent(coordinates.getTypeName(), typeName -> new HashSet<>())
+          .add(coordinates.getFieldName());
+    }
+    return new AuthorizationTargets(false, Collections.unmodifiableSet(new HashSet<>(typeNames)),
+        Collections.unmodifiableMap(fieldNamesByType));
+  }
+
+  public static AuthorizationTargets ofTypes(String... typeNames) {
+    return of(Arrays.asList(typeNames), Collections.emptySet());
+  }
+
+  public static AuthorizationTargets ofFields(FieldCoordinates... fieldCoordinates) {
+    return of(Collections.emptySet(), Arrays.asList(fieldCoordinates));
+  }
+
+  /**
+   * @param authorizationExtension extension of the request
+   * @return targets declared by the extension, every field if it declares none
+   */
+  public static AuthorizationTargets targetsOf(AuthorizationExtension authorizationExtension) {
+    AuthorizationTargets targets = authorizationExtension.getTargets();
+    return targets == null ? ALL_FIELDS : targets;
+  }
+
+  /**
+   * @param parentType unwrapped type the field is selected on
+   * @param fieldDefinition the selected field
+   * @return true if the extension has to be asked about the field
+   */
+  public boolean appliesTo(GraphQLNamedType parentType, GraphQLFieldDefinition fieldDefinition) {
+    if (allFields) {
+      return true;
+    }
+    if (typeNames.contains(parentType.getName())) {
+      return true;
+    }
+    Set<String> fieldNames = fieldNamesByType.get(parentType.getName());
+    return fieldNames != null && fieldNames.contains(fieldDefinition.getName());
+  }
+
+  /**
+   * @return true if no field is targeted, i.e. the extension never has to be asked
+   */
+  public boolean isEmpty() {
+    return !allFields && typeNames.isEmpty() && fieldNamesByType.isEmpty();
+  }
+}
@@ -0,0 +1,25 @@
+package com.intuit.graphql.authorization.extension;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An {@link AuthorizationExtension} asked about all fields of an operation at once. The fields permitted by the rules
+ * and targeted by {@link #getTargets()} are collected before the operation is redacted and passed to a single
+ * {@link #authorizeAll(List)} call, e.g. to evaluate them with one request to a policy decision point.
+ */
+public interface BatchAuthorizationExtension extends AuthorizationExtension {
+
+  /**
+   * Fields below a field that is denied are part of the same batch, since all decisions are taken together.
+   *
+   * @param fieldAuthorizationEnvironments the fields of the operation to authorize
+   * @return one result per environment, in the same order
+   */
+  List<FieldAuthorizationResult> authorizeAll(List<FieldAuthorizationEnvironment> fieldAuthorizationEnvironments);
+
+  @Override
+  default FieldAuthorizationResult authorize(FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+    return authorizeAll(Collections.singletonList(fieldAuthorizationEnvironment)).get(0);
+  }
+}
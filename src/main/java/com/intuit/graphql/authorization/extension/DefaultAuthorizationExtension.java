@@ -7,4 +7,15 @@ public class DefaultAuthorizationExtension implements AuthorizationExtension {
       FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
     return FieldAuthorizationResult.ALLOWED_FIELD_AUTH_RESULT;
   }
+
+  /**
+   * This extension allows every field, so it does not have to be asked about any. Subclasses overriding
+   * {@link #authorize(FieldAuthorizationEnvironment)} are asked about every field unless they declare their own
+   * targets.
+   */
+  @Override
+  public AuthorizationTargets getTargets() {
+    return getClass() == DefaultAuthorizationExtension.class
+        ? AuthorizationTargets.NO_FIELDS : AuthorizationExtension.super.getTargets();
+  }
 }
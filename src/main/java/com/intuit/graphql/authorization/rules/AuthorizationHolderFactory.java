@@ -1,15 +1,22 @@
 package com.intuit.graphql.authorization.rules;
 
 import com.intuit.graphql.authorization.config.AuthzClient;
-import com.intuit.graphql.authorization.util.FieldCoordinatesFormattingUtil;
 import graphql.schema.FieldCoordinates;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -17,50 +24,268 @@ import lombok.extern.slf4j.Slf4j;
 public class AuthorizationHolderFactory {
 
   private final RuleParser ruleParser;
+  private final Executor executor;
 
   public AuthorizationHolderFactory(RuleParser ruleParser) {
+    this(ruleParser, null);
+  }
+
+  /**
+   * @param ruleParser parser of rule queries, must be thread safe if an executor is given
+   * @param executor executor to parse clients concurrently on, or null to parse them on the calling thread
+   */
+  public AuthorizationHolderFactory(RuleParser ruleParser, Executor executor) {
     this.ruleParser = Objects.requireNonNull(ruleParser);
+    this.executor = executor;
   }
 
   public Map<String, Map<String, Set<String>>> parse(
       Map<AuthzClient, List<String>> graphqlRulesByClient
   ) {
-    Map<String, Map<String, Set<String>>> scopeToTypeMap = new HashMap<>();
+    return compile(graphqlRulesByClient).getScopeToTypeMap();
+  }
 
-    for (Entry<AuthzClient, List<String>> entry : graphqlRulesByClient.entrySet()) {
-      AuthzClient authzClient = entry.getKey();
-      List<String> queries = entry.getValue();
-      String id = authzClient.getId();
+  /**
+   * Compiles the rules of every client.
+   *
+   * @param graphqlRulesByClient rule queries by client
+   * @return compiled rules
+   */
+  public CompiledRules compile(Map<AuthzClient, List<String>> graphqlRulesByClient) {
+    return compile(new CompiledRules(Collections.emptyMap(), Collections.emptyMap(), CompileTimings.NONE),
+        graphqlRulesByClient);
+  }
 
-      Map<String, Set<String>> intermediateResults = new HashMap<>();
+  /**
+   * Keeps only the rule queries of every client and compiles the rules of a client the first time its scope is
+   * looked up. At most {@code maximumSize} compiled clients are kept.
+   *
+   * @param graphqlRulesByClient rule queries by client
+   * @param maximumSize maximum number of compiled clients that are kept
+   * @return compiled rules backed by a {@link LazyScopeToTypeMap}
+   */
+  public CompiledRules compileLazily(Map<AuthzClient, List<String>> graphqlRulesByClient, int maximumSize) {
+    Map<String, List<String>> rulesByClientId = new HashMap<>();
+    graphqlRulesByClient.forEach((client, queries) -> {
+      if (queries != null && !queries.isEmpty()) {
+        rulesByClientId.put(client.getId(), queries);
+      }
+    });
+    log.info("Deferred compiling rules of " + rulesByClientId.size() + " clients until first use");
+    return new CompiledRules(new LazyScopeToTypeMap(this, rulesByClientId, maximumSize), Collections.emptyMap(),
+        CompileTimings.NONE);
+  }
 
-      InvalidFieldsCollector invalidFieldsCollector = new InvalidFieldsCollector();
+  /**
+   * Recompiles the given clients on top of a previous result. A client whose rules have the same fingerprint as in
+   * the previous result keeps its compiled rules, a client mapped to no rules is removed, and clients that are not
+   * part of the given map are left untouched.
+   *
+   * If this factory has an executor, the changed clients are parsed concurrently on it. The result and the set of
+   * logged errors are the same as for a sequential compilation, but errors of different clients may be logged in any
+   * order.
+   *
+   * Identical rule queries are parsed once per compilation, however many clients reference them, and equal field
+   * sets are shared between clients. The compiled rules are unmodifiable.
+   *
+   * If the previous result was compiled lazily, the result is lazy as well and every changed client is compiled on
+   * its next use.
+   *
+   * @param previous result of an earlier compilation
+   * @param changedRulesByClient rule queries of added, changed or removed clients
+   * @return compiled rules
+   */
+  public CompiledRules compile(CompiledRules previous, Map<AuthzClient, List<String>> changedRulesByClient) {
+    if (previous.getScopeToTypeMap() instanceof LazyScopeToTypeMap) {
+      return new CompiledRules(((LazyScopeToTypeMap) previous.getScopeToTypeMap()).withClients(changedRulesByClient),
+          Collections.emptyMap(), CompileTimings.NONE);
+    }
+    long start = System.nanoTime();
+    Map<String, Map<String, Set<String>>> scopeToTypeMap = new HashMap<>(previous.getScopeToTypeMap());
+    Map<String, String> fingerprints = new HashMap<>(previous.getFingerprintsByClientId());
+    Map<String, List<String>> clientsToParse = new LinkedHashMap<>();
 
-      for (final String query : queries) {
-        try {
-          Map<String, Set<String>> ruleSetMap = ruleParser.parseRule(query, invalidFieldsCollector);
-          ruleSetMap.forEach((type, fields) -> intermediateResults.merge(type, fields, (oldSet, newSet) -> {
-            oldSet.addAll(newSet);
-            return oldSet;
-          }));
-        } catch (Exception e) {
-          log.error("Failed to parse rule for scope " + id, e);
-        }
+    for (Entry<AuthzClient, List<String>> entry : changedRulesByClient.entrySet()) {
+      String id = entry.getKey().getId();
+      List<String> queries = entry.getValue() == null ? Collections.emptyList() : entry.getValue();
+
+      if (queries.isEmpty()) {
+        scopeToTypeMap.remove(id);
+        fingerprints.remove(id);
+        clientsToParse.remove(id);
+        continue;
       }
 
-      if (invalidFieldsCollector.hasInvalidFields()) {
-        log.error(String.format("Invalid fields found in query rule.  clientId=%s, invalidFields=%s",
-          id, invalidFieldsCollector.getInvalidFieldsAsString()));
+      String fingerprint = fingerprint(queries);
+      if (fingerprint.equals(fingerprints.get(id))) {
+        continue;
       }
+      fingerprints.put(id, fingerprint);
+      clientsToParse.put(id, queries);
+    }
+    long fingerprinted = System.nanoTime();
+
+    Map<String, ParsedClient> parsedClients = parseClients(clientsToParse);
+    long parsed = System.nanoTime();
 
-      if (!intermediateResults.isEmpty()) {
-        scopeToTypeMap.put(id, intermediateResults);
+    long parseNanos = 0;
+    Map<Set<String>, Set<String>> fieldSets = new HashMap<>();
+    for (Entry<String, ParsedClient> entry : parsedClients.entrySet()) {
+      parseNanos += entry.getValue().parseNanos;
+      if (entry.getValue().typeToFields.isEmpty()) {
+        scopeToTypeMap.remove(entry.getKey());
+      } else {
+        scopeToTypeMap.put(entry.getKey(), intern(entry.getValue().typeToFields, fieldSets));
       }
     }
+    long end = System.nanoTime();
 
-    log.info("Parsed rules for scopes " + scopeToTypeMap.keySet());
-    return Collections.unmodifiableMap(scopeToTypeMap);
+    CompileTimings compileTimings = new CompileTimings(fingerprinted - start, parseNanos, end - parsed,
+        end - start);
+    log.info("Parsed rules for scopes " + scopeToTypeMap.keySet() + ", recompiled " + parsedClients.size() + " of "
+        + changedRulesByClient.size() + " clients (" + compileTimings + ")");
+    return new CompiledRules(scopeToTypeMap, fingerprints, compileTimings);
   }
 
-}
+  private Map<String, ParsedClient> parseClients(Map<String, List<String>> clientsToParse) {
+    Map<String, CompletableFuture<ParsedRule>> parsedRules = new ConcurrentHashMap<>();
+    Map<String, ParsedClient> parsedClients = new LinkedHashMap<>();
+    if (executor == null || clientsToParse.size() < 2) {
+      clientsToParse.forEach((id, queries) -> parsedClients.put(id, parseClient(id, queries, parsedRules)));
+      return parsedClients;
+    }
+
+    Map<String, CompletableFuture<ParsedClient>> futures = new LinkedHashMap<>();
+    clientsToParse.forEach((id, queries) ->
+        futures.put(id, CompletableFuture.supplyAsync(() -> parseClient(id, queries, parsedRules), executor)));
+    futures.forEach((id, future) -> parsedClients.put(id, future.join()));
+    return parsedClients;
+  }
+
+  /*
+   * Rules shared by several clients are parsed once per compilation. Every client still gets the invalid fields and
+   * the failure of each of its rules reported under its own id. The field sets of a parsed rule are shared, so a type
+   * granted by more than one rule of the client gets its own copy before the fields are merged.
+   */
+  private ParsedClient parseClient(String id, List<String> queries,
+      Map<String, CompletableFuture<ParsedRule>> parsedRules) {
+    long start = System.nanoTime();
+    Map<String, Set<String>> intermediateResults = new HashMap<>();
+    Set<String> copiedTypes = new HashSet<>();
+
+    InvalidFieldsCollector invalidFieldsCollector = new InvalidFieldsCollector();
+
+    for (final String query : queries) {
+      ParsedRule parsedRule = parseRule(query, parsedRules);
+      invalidFieldsCollector.addInvalidFields(parsedRule.invalidFields);
+      if (parsedRule.failure != null) {
+        log.error("Failed to parse rule for scope " + id, parsedRule.failure);
+        continue;
+      }
+      parsedRule.typeToFields.forEach((type, fields) -> intermediateResults.merge(type, fields, (oldSet, newSet) -> {
+        if (copiedTypes.add(type)) {
+          Set<String> copy = new HashSet<>(oldSet);
+          copy.addAll(newSet);
+          return copy;
+        }
+        oldSet.addAll(newSet);
+        return oldSet;
+      }));
+    }
+
+    if (invalidFieldsCollector.hasInvalidFields()) {
+      log.error(String.format("Invalid fields found in query rule.  clientId=%s, invalidFields=%s",
+        id, invalidFieldsCollector.getInvalidFieldsAsString()));
+    }
+    return new ParsedClient(intermediateResults, System.nanoTime() - start);
+  }
+
+  Map<String, Set<String>> compileClient(String id, List<String> queries) {
+    ParsedClient parsedClient = parseClient(id, queries, new HashMap<>());
+    return intern(parsedClient.typeToFields, new HashMap<>());
+  }
+
+  private ParsedRule parseRule(String query, Map<String, CompletableFuture<ParsedRule>> parsedRules) {
+    CompletableFuture<ParsedRule> parsedRule = new CompletableFuture<>();
+    CompletableFuture<ParsedRule> existing = parsedRules.putIfAbsent(query, parsedRule);
+    if (existing != null) {
+      return existing.join();
+    }
+    try {
+      parsedRule.complete(ParsedRule.parse(ruleParser, query));
+    } catch (RuntimeException | Error e) {
+      //e.g. a StackOverflowError on a deeply nested rule; clients waiting for the same rule must not block forever
+      parsedRule.completeExceptionally(e);
+      throw e;
+    }
+    return parsedRule.join();
+  }
+
+  /*
+   * Equal field sets of different clients and types are replaced by one shared, unmodifiable instance.
+   */
+  private static Map<String, Set<String>> intern(Map<String, Set<String>> typeToFields,
+      Map<Set<String>, Set<String>> fieldSets) {
+    Map<String, Set<String>> interned = new HashMap<>();
+    typeToFields.forEach((type, fields) ->
+        interned.put(type, fieldSets.computeIfAbsent(fields, Collections::unmodifiableSet)));
+    return Collections.unmodifiableMap(interned);
+  }
+
+  static String fingerprint(List<String> queries) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    for (String query : queries) {
+      byte[] bytes = query.getBytes(StandardCharsets.UTF_8);
+      digest.update(new byte[]{(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16),
+          (byte) (bytes.length >>> 8), (byte) bytes.length});
+      digest.update(bytes);
+    }
+    StringBuilder fingerprint = new StringBuilder();
+    for (byte b : digest.digest()) {
+      fingerprint.append(String.format("%02x", b));
+    }
+    return fingerprint.toString();
+  }
+
+  private static class ParsedRule {
 
+    private final Map<String, Set<String>> typeToFields;
+    private final Set<FieldCoordinates> invalidFields;
+    private final Exception failure;
+
+    private ParsedRule(Map<String, Set<String>> typeToFields, Set<FieldCoordinates> invalidFields,
+        Exception failure) {
+      this.typeToFields = typeToFields;
+      this.invalidFields = invalidFields;
+      this.failure = failure;
+    }
+
+    private static ParsedRule parse(RuleParser ruleParser, String query) {
+      InvalidFieldsCollector invalidFieldsCollector = new InvalidFieldsCollector();
+      try {
+        Map<String, Set<String>> typeToFields = new HashMap<>();
+        ruleParser.parseRule(query, invalidFieldsCollector)
+            .forEach((type, fields) -> typeToFields.put(type, Collections.unmodifiableSet(fields)));
+        return new ParsedRule(typeToFields, invalidFieldsCollector.getInvalidFields(), null);
+      } catch (Exception e) {
+        return new ParsedRule(Collections.emptyMap(), invalidFieldsCollector.getInvalidFields(), e);
+      }
+    }
+  }
+
+  private static class ParsedClient {
+
+    private final Map<String, Set<String>> typeToFields;
+    private final long parseNanos;
+
+    private ParsedClient(Map<String, Set<String>> typeToFields, long parseNanos) {
+      this.typeToFields = typeToFields;
+      this.parseNanos = parseNanos;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.intuit.graphql.authorization.rules;
+
+import java.util.concurrent.TimeUnit;
+import lombok.Value;
+
+/**
+ * Time spent in each phase of {@link AuthorizationHolderFactory#compile(CompiledRules, java.util.Map)}.
+ *
+ * Parsing time is summed over all clients, so with a parallel compile it can exceed the total wall-clock time.
+ */
+@Value
+public class CompileTimings {
+
+  public static final CompileTimings NONE = new CompileTimings(0, 0, 0, 0);
+
+  /**
+   * Time spent fingerprinting the rules of changed clients.
+   */
+  long fingerprintNanos;
+  /**
+   * Time spent parsing rule queries into allowed types and fields, summed over clients.
+   */
+  long parseNanos;
+  /**
+   * Time spent merging the parsed clients into the result.
+   */
+  long mergeNanos;
+  /**
+   * Wall-clock time of the whole compilation.
+   */
+  long totalNanos;
+
+  @Override
+  public String toString() {
+    return "fingerprint=" + millis(fingerprintNanos) + "ms, parse=" + millis(parseNanos) + "ms, merge="
+        + millis(mergeNanos) + "ms, total=" + millis(totalNanos) + "ms";
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+}
@@ -0,0 +1,27 @@
+package com.intuit.graphql.authorization.rules;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import lombok.Getter;
+
+/**
+ * The output of {@link AuthorizationHolderFactory#compile(Map)}: the allowed types and fields by scope together with
+ * a fingerprint of the rules each client was compiled from, which allows recompiling only changed clients, and the
+ * time spent compiling.
+ */
+@Getter
+public class CompiledRules {
+
+  private final Map<String, Map<String, Set<String>>> scopeToTypeMap;
+  private final Map<String, String> fingerprintsByClientId;
+  private final CompileTimings compileTimings;
+
+  CompiledRules(Map<String, Map<String, Set<String>>> scopeToTypeMap, Map<String, String> fingerprintsByClientId,
+      CompileTimings compileTimings) {
+    this.scopeToTypeMap = scopeToTypeMap instanceof LazyScopeToTypeMap
+        ? scopeToTypeMap : Collections.unmodifiableMap(scopeToTypeMap);
+    this.fingerprintsByClientId = Collections.unmodifiableMap(fingerprintsByClientId);
+    this.compileTimings = compileTimings;
+  }
+}
@@ -0,0 +1,271 @@
+package com.intuit.graphql.authorization.rules;
+
+import com.intuit.graphql.authorization.config.AuthzClient;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaPrinter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A binary file holding {@link CompiledRules}, so that a restart with the same schema and rules does not parse the
+ * rule queries again.
+ *
+ * The file is stamped with a fingerprint of the printed schema and a hash of the rules of every client. It is only
+ * used if both match; otherwise the rules are compiled and the file is rewritten. A missing, unreadable or corrupt
+ * file is treated like a mismatch, so the snapshot never prevents startup.
+ *
+ * Layout, all integers big endian: magic, format version, schema fingerprint, policy hash, a table of distinct
+ * strings, a table of distinct field sets as string indexes, and per client its id, rule fingerprint and pairs of type
+ * name and field set index.
+ */
+@Slf4j
+public class CompiledRulesSnapshotFile {
+
+  static final int MAGIC = 0x47514153;
+  static final int FORMAT_VERSION = 1;
+
+  private final Path path;
+
+  public CompiledRulesSnapshotFile(Path path) {
+    this.path = Objects.requireNonNull(path);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Returns the rules stored in the file if it was written for the same schema and rules, otherwise compiles the
+   * rules with the given factory and writes them to the file.
+   *
+   * @param factory factory compiling the rules on a mismatch
+   * @param schema the graphql schema the rules are compiled against
+   * @param graphqlRulesByClient rule queries by client
+   * @return compiled rules
+   */
+  public CompiledRules loadOrCompile(AuthorizationHolderFactory factory, GraphQLSchema schema,
+      Map<AuthzClient, List<String>> graphqlRulesByClient) {
+    long start = System.nanoTime();
+    String schemaFingerprint = schemaFingerprint(schema);
+    String policyHash = policyHash(graphqlRulesByClient);
+
+    CompiledRules loaded = read(schemaFingerprint, policyHash, start);
+    if (loaded != null) {
+      log.info("Loaded compiled rules for scopes " + loaded.getScopeToTypeMap().keySet() + " from " + path + " ("
+          + loaded.getCompileTimings() + ")");
+      return loaded;
+    }
+
+    CompiledRules compiledRules = factory.compile(graphqlRulesByClient);
+    try {
+      write(compiledRules, schemaFingerprint, policyHash);
+    } catch (IOException e) {
+      log.warn("Failed to write compiled rules to " + path, e);
+    }
+    return compiledRules;
+  }
+
+  /**
+   * @return the stored rules, or null if the file does not exist or does not match the schema and rules
+   */
+  CompiledRules read(String schemaFingerprint, String policyHash, long start) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        log.info("Ignoring " + path + ", not a compiled rules snapshot of format version " + FORMAT_VERSION);
+        return null;
+      }
+      if (!schemaFingerprint.equals(readString(buffer)) || !policyHash.equals(readString(buffer))) {
+        log.info("Ignoring " + path + ", it was written for a different schema or different rules");
+        return null;
+      }
+      long mapped = System.nanoTime();
+      CompiledRules compiledRules = readRules(buffer, mapped - start, start);
+      if (buffer.hasRemaining()) {
+        log.warn("Ignoring " + path + ", unexpected trailing bytes");
+        return null;
+      }
+      return compiledRules;
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+        | IllegalArgumentException e) {
+      log.warn("Ignoring unreadable compiled rules snapshot " + path, e);
+      return null;
+    }
+  }
+
+  private static CompiledRules readRules(ByteBuffer buffer, long fingerprintNanos, long start) {
+    String[] strings = new String[readCount(buffer, Integer.BYTES)];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = readString(buffer);
+    }
+
+    List<Set<String>> fieldSets = new ArrayList<>();
+    int fieldSetCount = readCount(buffer, Integer.BYTES);
+    for (int i = 0; i < fieldSetCount; i++) {
+      int size = readCount(buffer, Integer.BYTES);
+      Set<String> fields = new HashSet<>();
+      for (int j = 0; j < size; j++) {
+        fields.add(strings[buffer.getInt()]);
+      }
+      fieldSets.add(Collections.unmodifiableSet(fields));
+    }
+
+    Map<String, Map<String, Set<String>>> scopeToTypeMap = new HashMap<>();
+    Map<String, String> fingerprints = new HashMap<>();
+    int clientCount = readCount(buffer, 3 * Integer.BYTES);
+    for (int i = 0; i < clientCount; i++) {
+      String id = strings[buffer.getInt()];
+      fingerprints.put(id, strings[buffer.getInt()]);
+      int typeCount = readCount(buffer, 2 * Integer.BYTES);
+      Map<String, Set<String>> typeToFields = new HashMap<>();
+      for (int j = 0; j < typeCount; j++) {
+        typeToFields.put(strings[buffer.getInt()], fieldSets.get(buffer.getInt()));
+      }
+      if (!typeToFields.isEmpty()) {
+        scopeToTypeMap.put(id, Collections.unmodifiableMap(typeToFields));
+      }
+    }
+    long end = System.nanoTime();
+    return new CompiledRules(scopeToTypeMap, fingerprints,
+        new CompileTimings(fingerprintNanos, end - start - fingerprintNanos, 0, end - start));
+  }
+
+  /*
+   * Written to a temporary file next to the target and moved into place, so that a concurrent reader never sees a
+   * partially written snapshot.
+   */
+  void write(CompiledRules compiledRules, String schemaFingerprint, String policyHash) throws IOException {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    Map<Set<String>, Integer> fieldSets = new LinkedHashMap<>();
+    Map<String, String> fingerprints = new TreeMap<>(compiledRules.getFingerprintsByClientId());
+    for (Entry<String, String> entry : fingerprints.entrySet()) {
+      index(strings, entry.getKey());
+      index(strings, entry.getValue());
+      Map<String, Set<String>> typeToFields = compiledRules.getScopeToTypeMap()
+          .getOrDefault(entry.getKey(), Collections.emptyMap());
+      typeToFields.forEach((type, fields) -> {
+        index(strings, type);
+        fields.forEach(field -> index(strings, field));
+        fieldSets.putIfAbsent(fields, fieldSets.size());
+      });
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeString(out, schemaFingerprint);
+      writeString(out, policyHash);
+      out.writeInt(strings.size());
+      for (String string : strings.keySet()) {
+        writeString(out, string);
+      }
+      out.writeInt(fieldSets.size());
+      for (Set<String> fields : fieldSets.keySet()) {
+        out.writeInt(fields.size());
+        for (String field : fields) {
+          out.writeInt(strings.get(field));
+        }
+      }
+      out.writeInt(fingerprints.size());
+      for (Entry<String, String> entry : fingerprints.entrySet()) {
+        out.writeInt(strings.get(entry.getKey()));
+        out.writeInt(strings.get(entry.getValue()));
+        Map<String, Set<String>> typeToFields = compiledRules.getScopeToTypeMap()
+            .getOrDefault(entry.getKey(), Collections.emptyMap());
+        out.writeInt(typeToFields.size());
+        for (Entry<String, Set<String>> type : typeToFields.entrySet()) {
+          out.writeInt(strings.get(type.getKey()));
+          out.writeInt(fieldSets.get(type.getValue()));
+        }
+      }
+    }
+
+    Path parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temporary, bytes.toByteArray());
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    log.info("Wrote compiled rules to " + path + " (" + bytes.size() + " bytes)");
+  }
+
+  static String schemaFingerprint(GraphQLSchema schema) {
+    return AuthorizationHolderFactory.fingerprint(Collections.singletonList(new SchemaPrinter().print(schema)));
+  }
+
+  /*
+   * Clients without rules do not contribute to the compiled rules and are left out, the others are hashed in id order
+   * so that the hash does not depend on the iteration order of the map.
+   */
+  static String policyHash(Map<AuthzClient, List<String>> graphqlRulesByClient) {
+    Map<String, String> fingerprints = new TreeMap<>();
+    graphqlRulesByClient.forEach((client, queries) -> {
+      if (queries != null && !queries.isEmpty()) {
+        fingerprints.put(client.getId(), AuthorizationHolderFactory.fingerprint(queries));
+      }
+    });
+    List<String> entries = new ArrayList<>();
+    fingerprints.forEach((id, fingerprint) -> {
+      entries.add(id);
+      entries.add(fingerprint);
+    });
+    return AuthorizationHolderFactory.fingerprint(entries);
+  }
+
+  private static void index(Map<String, Integer> strings, String string) {
+    strings.putIfAbsent(string, strings.size());
+  }
+
+  /*
+   * Counts and lengths are checked against the bytes left before anything is allocated for them, so that a corrupt
+   * or truncated file is ignored instead of failing with an OutOfMemoryError.
+   */
+  private static int readCount(ByteBuffer buffer, int minimumBytesPerElement) {
+    int count = buffer.getInt();
+    if (count < 0 || count > buffer.remaining() / minimumBytesPerElement) {
+      throw new IllegalArgumentException("Invalid count " + count + " with " + buffer.remaining() + " bytes left");
+    }
+    return count;
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[readCount(buffer, 1)];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
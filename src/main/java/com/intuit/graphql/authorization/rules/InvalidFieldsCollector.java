@@ -4,6 +4,7 @@ import com.intuit.graphql.authorization.util.FieldCoordinatesFormattingUtil;
 import graphql.language.Field;
 import graphql.schema.FieldCoordinates;
 import graphql.schema.GraphQLFieldsContainer;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 import org.apache.commons.collections4.CollectionUtils;
@@ -17,6 +18,10 @@ public class InvalidFieldsCollector implements RuleParserListener {
     invalidFields.add(FieldCoordinates.coordinates(parentType.getName(), field.getName()));
   }
 
+  void addInvalidFields(Collection<FieldCoordinates> fieldCoordinates) {
+    invalidFields.addAll(fieldCoordinates);
+  }
+
   public boolean hasInvalidFields() {
     return CollectionUtils.isNotEmpty(invalidFields);
   }
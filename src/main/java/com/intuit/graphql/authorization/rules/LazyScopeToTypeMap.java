@@ -0,0 +1,113 @@
+package com.intuit.graphql.authorization.rules;
+
+import com.intuit.graphql.authorization.config.AuthzClient;
+import com.intuit.graphql.authorization.util.BoundedCache;
+import com.intuit.graphql.authorization.util.CacheStats;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only scope to type map that keeps only the rule queries of every client and compiles the rules of a client
+ * the first time its scope is looked up.
+ *
+ * Compiled clients are kept in a {@link BoundedCache}, so the retained rules follow the clients that are actually in
+ * use. {@link #containsKey(Object)} and {@link #keySet()} only look at the rule queries; iterating the entries
+ * compiles every client.
+ */
+public class LazyScopeToTypeMap extends AbstractMap<String, Map<String, Set<String>>> {
+
+  private final AuthorizationHolderFactory factory;
+  private final Map<String, List<String>> rulesByClientId;
+  private final BoundedCache<String, Map<String, Set<String>>> compiledClients;
+  private final int maximumSize;
+
+  LazyScopeToTypeMap(AuthorizationHolderFactory factory, Map<String, List<String>> rulesByClientId,
+      int maximumSize) {
+    this.factory = factory;
+    this.rulesByClientId = Collections.unmodifiableMap(rulesByClientId);
+    this.compiledClients = new BoundedCache<>(maximumSize);
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * @return maximum number of compiled clients that are kept
+   */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Counters of the cache holding the compiled clients.
+   *
+   * @return hit, miss and eviction counts
+   */
+  public CacheStats stats() {
+    return compiledClients.stats();
+  }
+
+  /**
+   * Returns a map with the rules of the given clients replaced. Clients mapped to no rules are removed. The compiled
+   * rules of the other clients are carried over, so only changed clients are compiled again.
+   *
+   * @param changedRulesByClient rule queries of added, changed or removed clients
+   * @return a new lazy map
+   */
+  LazyScopeToTypeMap withClients(Map<AuthzClient, List<String>> changedRulesByClient) {
+    Map<String, List<String>> rules = new HashMap<>(rulesByClientId);
+    Set<String> changedClientIds = new HashSet<>();
+    changedRulesByClient.forEach((client, queries) -> {
+      changedClientIds.add(client.getId());
+      if (queries == null || queries.isEmpty()) {
+        rules.remove(client.getId());
+      } else {
+        rules.put(client.getId(), queries);
+      }
+    });
+    LazyScopeToTypeMap lazyScopeToTypeMap = new LazyScopeToTypeMap(factory, rules, maximumSize);
+    compiledClients.snapshot().forEach((id, typeToFields) -> {
+      if (!changedClientIds.contains(id)) {
+        lazyScopeToTypeMap.compiledClients.put(id, typeToFields);
+      }
+    });
+    return lazyScopeToTypeMap;
+  }
+
+  @Override
+  public Map<String, Set<String>> get(Object key) {
+    List<String> queries = rulesByClientId.get(key);
+    if (queries == null) {
+      return null;
+    }
+    return compiledClients.get((String) key, id -> factory.compileClient(id, queries));
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return rulesByClientId.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return rulesByClientId.size();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return rulesByClientId.keySet();
+  }
+
+  @Override
+  public Set<Entry<String, Map<String, Set<String>>>> entrySet() {
+    Set<Entry<String, Map<String, Set<String>>>> entries = new LinkedHashSet<>();
+    for (String id : rulesByClientId.keySet()) {
+      entries.add(new SimpleImmutableEntry<>(id, get(id)));
+    }
+    return Collections.unmodifiableSet(entries);
+  }
+}
@@ -0,0 +1,232 @@
+package com.intuit.graphql.authorization.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A small concurrent, size-bounded cache with least-recently-used eviction.
+ *
+ * Entries are looked up in a concurrent map, so hits do not take a lock. A hit records its entry in a small lossy
+ * buffer instead of reordering entries itself; the buffer is drained into the access order under a lock that is only
+ * taken to insert or evict entries. Hits between two inserts may overwrite each other in the buffer and are applied in
+ * buffer order, so eviction approximates the least recently used order. Values are loaded outside of the lock with
+ * single-flight semantics: concurrent callers asking for the same missing key wait for the one in-flight load instead
+ * of computing the value themselves. Failed loads are not cached. A loader must not ask the cache for the key it is
+ * loading; this is detected and rejected with an {@link IllegalStateException} instead of waiting on itself.
+ *
+ * A maximum size of zero disables caching; every call then invokes the loader.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+
+  private static final int ACCESS_BUFFER_SIZE = 64;
+
+  private final int maximumSize;
+  private final ConcurrentHashMap<K, Node<K, V>> entries = new ConcurrentHashMap<>();
+  private final AtomicReferenceArray<Node<K, V>> accessBuffer = new AtomicReferenceArray<>(ACCESS_BUFFER_SIZE);
+  private final Object lock = new Object();
+  // sentinel of the access order, least recently used first; guarded by lock
+  private final Node<K, V> order = new Node<>(null, null);
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public BoundedCache(int maximumSize) {
+    if (maximumSize < 0) {
+      throw new IllegalArgumentException("maximumSize must not be negative");
+    }
+    this.maximumSize = maximumSize;
+    order.previous = order;
+    order.next = order;
+  }
+
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    if (maximumSize == 0) {
+      misses.increment();
+      return loader.apply(key);
+    }
+
+    Node<K, V> node = entries.get(key);
+    if (node == null) {
+      Node<K, V> loading = new Node<>(key, Thread.currentThread());
+      node = entries.putIfAbsent(key, loading);
+      if (node == null) {
+        return load(loading, loader);
+      }
+    }
+    accessBuffer.lazySet(ThreadLocalRandom.current().nextInt(ACCESS_BUFFER_SIZE), node);
+    //waiting for an in-flight load counts as a miss
+    (node.value.isDone() ? hits : misses).increment();
+    if (node.loadingThread == Thread.currentThread()) {
+      throw new IllegalStateException("Recursive load of cache key " + key);
+    }
+    return join(node.value);
+  }
+
+  /**
+   * Adds a loaded value, e.g. one carried over from another cache, as the most recently used entry.
+   */
+  public void put(K key, V value) {
+    if (maximumSize == 0) {
+      return;
+    }
+    Node<K, V> node = new Node<>(key, null);
+    node.value.complete(value);
+    Node<K, V> replaced = entries.put(key, node);
+    synchronized (lock) {
+      if (replaced != null) {
+        unlink(replaced);
+      }
+      add(node);
+    }
+  }
+
+  /**
+   * @return the loaded entries, least recently used first
+   */
+  public Map<K, V> snapshot() {
+    Map<K, V> snapshot = new LinkedHashMap<>();
+    synchronized (lock) {
+      drainAccessBuffer();
+      for (Node<K, V> node = order.next; node != order; node = node.next) {
+        if (node.value.isDone() && !node.value.isCompletedExceptionally()) {
+          snapshot.put(node.key, node.value.join());
+        }
+      }
+    }
+    return snapshot;
+  }
+
+  public void invalidateAll() {
+    synchronized (lock) {
+      entries.clear();
+      for (int i = 0; i < ACCESS_BUFFER_SIZE; i++) {
+        accessBuffer.set(i, null);
+      }
+      for (Node<K, V> node = order.next; node != order; node = node.next) {
+        node.linked = false;
+      }
+      order.previous = order;
+      order.next = order;
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public CacheStats stats() {
+    return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  private V load(Node<K, V> node, Function<? super K, ? extends V> loader) {
+    misses.increment();
+    synchronized (lock) {
+      add(node);
+    }
+    try {
+      node.value.complete(loader.apply(node.key));
+    } catch (RuntimeException | Error e) {
+      entries.remove(node.key, node);
+      synchronized (lock) {
+        unlink(node);
+      }
+      node.value.completeExceptionally(e);
+      throw e;
+    } finally {
+      node.loadingThread = null;
+    }
+    return join(node.value);
+  }
+
+  /*
+   * Appends a node that is still mapped as the most recently used entry, after applying the buffered hits, and evicts
+   * the least recently used entries whose load completed; entries still loading are skipped, so the cache may briefly
+   * hold more entries than its maximum size while loads are in flight. Must hold the lock.
+   */
+  private void add(Node<K, V> node) {
+    drainAccessBuffer();
+    if (entries.get(node.key) == node) {
+      append(node);
+    }
+    Node<K, V> eldest = order.next;
+    while (entries.size() > maximumSize && eldest != order) {
+      Node<K, V> next = eldest.next;
+      if (eldest.value.isDone()) {
+        unlink(eldest);
+        if (entries.remove(eldest.key, eldest)) {
+          evictions.increment();
+        }
+      }
+      eldest = next;
+    }
+  }
+
+  private void drainAccessBuffer() {
+    for (int i = 0; i < ACCESS_BUFFER_SIZE; i++) {
+      Node<K, V> node = accessBuffer.getAndSet(i, null);
+      if (node != null && node.linked) {
+        unlink(node);
+        append(node);
+      }
+    }
+  }
+
+  private void append(Node<K, V> node) {
+    node.previous = order.previous;
+    node.next = order;
+    order.previous.next = node;
+    order.previous = node;
+    node.linked = true;
+  }
+
+  private void unlink(Node<K, V> node) {
+    if (node.linked) {
+      node.previous.next = node.next;
+      node.next.previous = node.previous;
+      node.previous = null;
+      node.next = null;
+      node.linked = false;
+    }
+  }
+
+  private static <V> V join(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static class Node<K, V> {
+
+    private final K key;
+    private final CompletableFuture<V> value = new CompletableFuture<>();
+    private volatile Thread loadingThread;
+    // access order links, guarded by the cache lock
+    private Node<K, V> previous;
+    private Node<K, V> next;
+    private boolean linked;
+
+    private Node(K key, Thread loadingThread) {
+      this.key = key;
+      this.loadingThread = loadingThread;
+    }
+  }
+}
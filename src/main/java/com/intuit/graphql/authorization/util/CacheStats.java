@@ -0,0 +1,23 @@
+package com.intuit.graphql.authorization.util;
+
+import lombok.Value;
+
+/**
+ * Point-in-time counters of a {@link BoundedCache}.
+ */
+@Value
+public class CacheStats {
+
+  long hitCount;
+  long missCount;
+  long evictionCount;
+
+  public long requestCount() {
+    return hitCount + missCount;
+  }
+
+  public double hitRate() {
+    long requestCount = requestCount();
+    return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+  }
+}
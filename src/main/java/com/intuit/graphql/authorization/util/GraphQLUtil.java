@@ -4,7 +4,12 @@ import static graphql.Assert.assertNotNull;
 import static graphql.Assert.assertShouldNeverHappen;
 
 import graphql.introspection.Introspection;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
 import graphql.language.OperationDefinition;
+import graphql.language.Selection;
 import graphql.language.SelectionSet;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLFieldsContainer;
@@ -13,6 +18,10 @@ import graphql.schema.GraphQLSchema;
 import graphql.schema.GraphQLType;
 import graphql.schema.GraphQLTypeUtil;
 import graphql.schema.GraphQLUnmodifiedType;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.apache.commons.collections4.CollectionUtils;
 
 public class GraphQLUtil {
@@ -70,4 +79,40 @@ public class GraphQLUtil {
     }
     return false;
   }
+
+  /**
+   * Collects the fragments spread by a selection set, directly or through other fragments.
+   *
+   * @param selectionSet selection set of an operation
+   * @param fragmentsByName fragment definitions of the document
+   * @return reachable fragments by name, in the order they are first spread
+   */
+  public static Map<String, FragmentDefinition> getReachableFragments(SelectionSet selectionSet,
+      Map<String, FragmentDefinition> fragmentsByName) {
+    Map<String, FragmentDefinition> reachableFragments = new LinkedHashMap<>();
+    Deque<SelectionSet> pending = new ArrayDeque<>();
+    pending.push(selectionSet);
+    while (!pending.isEmpty()) {
+      for (Selection<?> selection : pending.pop().getSelections()) {
+        if (selection instanceof Field) {
+          addIfNotEmpty(pending, ((Field) selection).getSelectionSet());
+        } else if (selection instanceof InlineFragment) {
+          addIfNotEmpty(pending, ((InlineFragment) selection).getSelectionSet());
+        } else if (selection instanceof FragmentSpread) {
+          FragmentDefinition fragmentDefinition = fragmentsByName.get(((FragmentSpread) selection).getName());
+          if (fragmentDefinition != null
+              && reachableFragments.putIfAbsent(fragmentDefinition.getName(), fragmentDefinition) == null) {
+            addIfNotEmpty(pending, fragmentDefinition.getSelectionSet());
+          }
+        }
+      }
+    }
+    return reachableFragments;
+  }
+
+  private static void addIfNotEmpty(Deque<SelectionSet> pending, SelectionSet selectionSet) {
+    if (isNotEmpty(selectionSet)) {
+      pending.push(selectionSet);
+    }
+  }
 }
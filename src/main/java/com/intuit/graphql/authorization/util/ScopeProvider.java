@@ -14,9 +14,34 @@ public interface ScopeProvider {
     return new HashSet<>();
   }
 
+  /**
+   * Returns the scopes of the request as a {@link ScopeSet}. By default the set is not interned, as the scopes usually
+   * come from tokens. Override this to return an interned handle, e.g. cached per token or built with
+   * {@link ScopeSet#of(java.util.Collection)} when the scopes come from a bounded source, so that the scopes are not
+   * copied and hashed again on every request.
+   *
+   * @param o the context of the execution input
+   * @return scopes of the request
+   */
+  default ScopeSet getScopeSet(Object o) {
+    return ScopeSet.copyOf(getScopes(o));
+  }
+
   default String getErrorMessage(RedactionContext redactionContext) {
     return String.format(DEFAULT_ERROR_MESSAGE,
             redactionContext.getField().getName(), redactionContext.getFieldCoordinates().getTypeName());
   }
 
+  /**
+   * Error messages are always cached per field coordinates when {@link #getErrorMessage(RedactionContext)} is not
+   * overridden, whatever this method returns. A provider overriding it returns true to declare that its messages only
+   * depend on the type and field name, not on the scopes or arguments of the request, so that they are cached as well
+   * and it is called once per field coordinates.
+   *
+   * @return true if the error messages of an overriding provider can be cached per field coordinates
+   */
+  default boolean isErrorMessageCacheable() {
+    return false;
+  }
+
 }
@@ -0,0 +1,122 @@
+package com.intuit.graphql.authorization.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable set of scopes with a precomputed hash.
+ *
+ * {@link #copyOf(Collection)} creates a set compared by its scopes, which is what the default
+ * {@link ScopeProvider#getScopeSet(Object)} returns for every request. {@link #of(Collection)} interns the set
+ * instead: equal sets of scopes then return the same instance, which carries a small id that is stable for the
+ * lifetime of the JVM and is compared by identity. Callers that resolve the scopes of a request repeatedly, e.g. per
+ * token, can cache an interned handle and let verifier lookups, error messages and listeners key off the instance
+ * instead of comparing the scope strings on every request.
+ *
+ * Interned sets are never released, so only intern scope combinations that come from a bounded source such as
+ * validated credentials.
+ */
+public final class ScopeSet {
+
+  private static final Map<Set<String>, ScopeSet> INTERNED = new ConcurrentHashMap<>();
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+  private static final int NOT_INTERNED = -1;
+
+  private static final ScopeSet EMPTY = of(Collections.emptySet());
+
+  private final Set<String> scopes;
+  private final int id;
+  private final int hash;
+
+  private ScopeSet(Set<String> scopes, int id) {
+    this.scopes = scopes;
+    this.id = id;
+    this.hash = scopes.hashCode();
+  }
+
+  /**
+   * Returns the interned handle for the given scopes.
+   *
+   * @param scopes scopes of a request
+   * @return the shared handle for an equal set of scopes
+   */
+  public static ScopeSet of(Collection<String> scopes) {
+    ScopeSet scopeSet = scopes instanceof Set ? INTERNED.get(scopes) : null;
+    if (scopeSet != null) {
+      return scopeSet;
+    }
+    Set<String> copy = Collections.unmodifiableSet(new HashSet<>(scopes));
+    return INTERNED.computeIfAbsent(copy, key -> new ScopeSet(key, NEXT_ID.getAndIncrement()));
+  }
+
+  /**
+   * Returns a set of the given scopes that is not interned, so it is released with the request.
+   *
+   * @param scopes scopes of a request
+   * @return a set equal to every other set of the same scopes
+   */
+  public static ScopeSet copyOf(Collection<String> scopes) {
+    if (scopes.isEmpty()) {
+      return EMPTY;
+    }
+    ScopeSet scopeSet = scopes instanceof Set ? INTERNED.get(scopes) : null;
+    if (scopeSet != null) {
+      return scopeSet;
+    }
+    return new ScopeSet(Collections.unmodifiableSet(new HashSet<>(scopes)), NOT_INTERNED);
+  }
+
+  public static ScopeSet empty() {
+    return EMPTY;
+  }
+
+  public Set<String> getScopes() {
+    return scopes;
+  }
+
+  /**
+   * @return id of an interned set, -1 if the set is not interned
+   */
+  public int getId() {
+    return id;
+  }
+
+  public boolean isInterned() {
+    return id != NOT_INTERNED;
+  }
+
+  public boolean isEmpty() {
+    return scopes.isEmpty();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ScopeSet)) {
+      return false;
+    }
+    ScopeSet that = (ScopeSet) o;
+    //interned sets of equal scopes are the same instance
+    if (isInterned() && that.isInterned()) {
+      return false;
+    }
+    return hash == that.hash && scopes.equals(that.scopes);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return "ScopeSet{id=" + id + ", scopes=" + scopes + '}';
+  }
+}
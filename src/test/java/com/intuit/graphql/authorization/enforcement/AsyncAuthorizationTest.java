@@ -0,0 +1,106 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.authorization.enforcement.HelperAuthzExecution.DenyingExtension;
+import com.intuit.graphql.authorization.extension.AsyncAuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationEnvironment;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationResult;
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ExecutionResult;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLSchema;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncAuthorizationTest {
+
+  private static final AuthorizationTargets BOOK_FIELDS = AuthorizationTargets.ofFields(
+      FieldCoordinates.coordinates("Book", "name"), FieldCoordinates.coordinates("Book", "pageCount"));
+
+  private final DenyingExtension denyingExtension = new DenyingExtension("name", BOOK_FIELDS);
+  private GraphQLSchema schema;
+  private ExecutorService executor;
+
+  @Before
+  public void init() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    executor = Executors.newFixedThreadPool(2, runnable -> new Thread(runnable, "authz-extension"));
+  }
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void appliesDecisionsOfAsyncExtension() {
+    AsyncAuthorizationExtension extension = new AsyncAuthorizationExtension() {
+      @Override
+      public CompletableFuture<FieldAuthorizationResult> authorizeAsync(
+          FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+        return CompletableFuture.supplyAsync(() -> denyingExtension.authorize(fieldAuthorizationEnvironment),
+            executor);
+      }
+
+      @Override
+      public AuthorizationTargets getTargets() {
+        return BOOK_FIELDS;
+      }
+    };
+
+    ExecutionResult result = HelperAuthzExecution.execute(schema, extension,
+        HelperUtils.readString("queries/requestWithAllowedFields.graphql"), "Test.client2");
+
+    assertThat(result.getErrors()).hasSize(1);
+    Map<String, Map<String, Object>> data = result.getData();
+    assertThat(data.get("bookById")).doesNotContainKey("name").containsKey("pageCount");
+  }
+
+  @Test
+  public void authorizesFieldsOfSynchronousExtensionConcurrently() {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    List<String> threads = new CopyOnWriteArrayList<>();
+    AuthorizationExtension extension = new AuthorizationExtension() {
+      @Override
+      public FieldAuthorizationResult authorize(FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+        threads.add(Thread.currentThread().getName());
+        bothStarted.countDown();
+        try {
+          //fails the decision unless the other field is authorized at the same time
+          if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("fields were authorized sequentially");
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return denyingExtension.authorize(fieldAuthorizationEnvironment);
+      }
+
+      @Override
+      public AuthorizationTargets getTargets() {
+        return BOOK_FIELDS;
+      }
+    };
+
+    AuthzInstrumentation instrumentation = HelperAuthzExecution.instrumentation(schema, extension)
+        .extensionExecutor(executor)
+        .build();
+    ExecutionResult result = HelperAuthzExecution.execute(schema, instrumentation,
+        HelperUtils.readString("queries/requestWithAllowedFields.graphql"), "Test.client2");
+
+    assertThat(threads).containsOnly("authz-extension").hasSize(2);
+    assertThat(result.getErrors()).hasSize(1);
+  }
+}
@@ -1,6 +1,7 @@
 package com.intuit.graphql.authorization.enforcement;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 
 import com.intuit.graphql.authorization.config.AuthzClientConfiguration;
@@ -68,6 +69,7 @@ public class AuthZListenerTest {
 
     assertEquals(authzListener.countOnFieldRedaction, 2);
     assertEquals(authzListener.countOnEnforcement, 1);
+    assertFalse(authzListener.enforcedContextUnchanged);
     assertEquals(authzListener.countOnCreatingState, 1);
   }
 
@@ -85,6 +87,7 @@ public class AuthZListenerTest {
         "{bookById={__typename=Book, id=book-2, name=Moby Dick, pageCount=635, author={__typename=Author, firstName=Herman, lastName=Melville}, rating={__typename=Rating, comments=Excellent, stars=5}}}"));
     assertEquals(authzListener.countOnFieldRedaction, 0);
     assertEquals(authzListener.countOnEnforcement, 1);
+    assertTrue(authzListener.enforcedContextUnchanged);
     assertEquals(authzListener.countOnCreatingState, 1);
   }
 
@@ -117,9 +120,30 @@ public class AuthZListenerTest {
         "{bookById={id=book-3, name=Interview with the vampire, pageCount=371, author={firstName=Anne, lastName=Rice}, rating={comments=OK, stars=3}}}"));
     assertEquals(authzListener.countOnFieldRedaction, 0);
     assertEquals(authzListener.countOnEnforcement, 1);
+    assertTrue(authzListener.enforcedContextUnchanged);
     assertEquals(authzListener.countOnCreatingState, 1);
   }
 
+  @Test
+  public void authzWithMutationFragmentRedactionTest() {
+    ExecutionInput executionInput = ExecutionInput.newExecutionInput()
+        .query(HelperUtils.readString("queries/mutationQueryWithFragments.graphql"))
+        .context("Test.client4").build();
+
+    ExecutionResult result = graphql.execute(executionInput);
+
+    assertEquals(3, result.getErrors().size());
+    assertTrue(result.getErrors().get(0).getMessage()
+        .contains("403 - Not authorized to access field=pageCount of type=Book"));
+    assertTrue(result.getErrors().get(1).getMessage()
+        .contains("403 - Not authorized to access field=updateBookRecord of type=Mutation"));
+    assertTrue(result.getErrors().get(2).getMessage()
+        .contains("403 - Not authorized to access field=lastName of type=Author"));
+    assertEquals("{createNewBookRecord={id=Book-7, name=New World, author={firstName=Mickey}}, "
+        + "removeBookRecord={id=book-1}}", result.getData().toString());
+    assertEquals(authzListener.countOnFieldRedaction, 3);
+  }
+
   @Test
   public void noAuthZTest() {
     ExecutionInput executionInput = ExecutionInput.newExecutionInput().query(requestAllFields).context("").build();
@@ -154,6 +178,7 @@ public class AuthZListenerTest {
     int countOnFieldRedaction = 0;
     int countOnCreatingState = 0;
     int countOnEnforcement = 0;
+    boolean enforcedContextUnchanged;
 
     @Override
     public void onFieldRedaction(ExecutionContext executionContext,
@@ -170,6 +195,7 @@ public class AuthZListenerTest {
     public void onEnforcement(ExecutionContext originalExecutionContext,
         ExecutionContext enforcedExecutionContext) {
       countOnEnforcement = countOnEnforcement + 1;
+      enforcedContextUnchanged = originalExecutionContext == enforcedExecutionContext;
     }
   }
 
@@ -0,0 +1,86 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.authorization.enforcement.HelperAuthzExecution.DenyingExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
+import com.intuit.graphql.authorization.extension.DefaultAuthorizationExtension;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationEnvironment;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationResult;
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ExecutionResult;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AuthorizationTargetsTest {
+
+  private GraphQLSchema schema;
+
+  @Before
+  public void init() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+  }
+
+  @Test
+  public void matchesTypesAndFieldCoordinates() {
+    GraphQLObjectType bookType = schema.getObjectType("Book");
+    GraphQLObjectType authorType = schema.getObjectType("Author");
+    AuthorizationTargets targets = AuthorizationTargets.of(Collections.singleton("Author"),
+        Collections.singleton(FieldCoordinates.coordinates("Book", "rating")));
+
+    assertThat(targets.appliesTo(bookType, bookType.getFieldDefinition("rating"))).isTrue();
+    assertThat(targets.appliesTo(bookType, bookType.getFieldDefinition("name"))).isFalse();
+    assertThat(targets.appliesTo(authorType, authorType.getFieldDefinition("lastName"))).isTrue();
+    assertThat(targets.isEmpty()).isFalse();
+    assertThat(AuthorizationTargets.NO_FIELDS.isEmpty()).isTrue();
+    assertThat(AuthorizationTargets.ALL_FIELDS.appliesTo(bookType, bookType.getFieldDefinition("name"))).isTrue();
+  }
+
+  @Test
+  public void asksExtensionOnlyAboutTargetedFields() {
+    DenyingExtension extension = new DenyingExtension("rating",
+        AuthorizationTargets.ofFields(FieldCoordinates.coordinates("Book", "rating")));
+
+    ExecutionResult result = HelperAuthzExecution.execute(schema, extension,
+        HelperUtils.readString("queries/requestAllFields.graphql"), "Test.client1");
+
+    assertThat(extension.getAuthorized()).containsExactly(FieldCoordinates.coordinates("Book", "rating"));
+    assertThat(result.getErrors()).hasSize(1);
+    Map<String, Map<String, Object>> data = result.getData();
+    assertThat(data.get("bookById")).doesNotContainKey("rating").containsKey("author");
+  }
+
+  @Test
+  public void asksExtensionAboutEveryPermittedFieldByDefault() {
+    DenyingExtension extension = new DenyingExtension("rating", null);
+
+    HelperAuthzExecution.execute(schema, extension, HelperUtils.readString("queries/requestWithAllowedFields.graphql"),
+        "Test.client2");
+
+    assertThat(extension.getAuthorized()).hasSize(6);
+  }
+
+  @Test
+  public void asksSubclassOfDefaultExtensionAboutEveryField() {
+    DenyingExtension denyingExtension = new DenyingExtension("rating", null);
+    DefaultAuthorizationExtension extension = new DefaultAuthorizationExtension() {
+      @Override
+      public FieldAuthorizationResult authorize(FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+        return denyingExtension.authorize(fieldAuthorizationEnvironment);
+      }
+    };
+
+    ExecutionResult result = HelperAuthzExecution.execute(schema, extension,
+        HelperUtils.readString("queries/requestAllFields.graphql"), "Test.client1");
+
+    assertThat(new DefaultAuthorizationExtension().getTargets()).isSameAs(AuthorizationTargets.NO_FIELDS);
+    assertThat(result.getErrors()).hasSize(1);
+    Map<String, Map<String, Object>> data = result.getData();
+    assertThat(data.get("bookById")).doesNotContainKey("rating").containsKey("author");
+  }
+}
@@ -0,0 +1,109 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.authorization.enforcement.HelperAuthzExecution.CachingPreparsedDocumentProvider;
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLError;
+import graphql.parser.ParserOptions;
+import graphql.schema.GraphQLSchema;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AuthzErrorStrategyTest {
+
+  private GraphQLSchema schema;
+  private String requestAllFields;
+
+  @Before
+  public void init() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    requestAllFields = HelperUtils.readString("queries/requestAllFields.graphql");
+  }
+
+  @Test
+  public void reportsOneErrorForAllDeniedFields() {
+    ExecutionResult result = HelperAuthzExecution.execute(schema,
+        HelperAuthzExecution.instrumentation(schema).errorStrategy(AuthzErrorStrategy.AGGREGATED).build(),
+        requestAllFields, "Test.client2");
+
+    assertThat(result.getErrors()).hasSize(1);
+    GraphQLError error = result.getErrors().get(0);
+    assertThat(error.getMessage()).isEqualTo("403 - Not authorized to access fields=Author.lastName,Book.rating");
+    assertThat(error.getLocations()).hasSize(2);
+    assertThat(error.getExtensions()).containsEntry("deniedFields", Arrays.asList("Author.lastName", "Book.rating"));
+    assertThat(result.<Map<String, Object>>getData().get("bookById")).isNotNull();
+  }
+
+  @Test
+  public void summarizesDeniedFieldsInExtensions() {
+    ExecutionResult result = HelperAuthzExecution.execute(schema,
+        HelperAuthzExecution.instrumentation(schema).errorStrategy(AuthzErrorStrategy.SILENT).build(),
+        requestAllFields, "Test.client2");
+
+    assertThat(result.getErrors()).isEmpty();
+    assertThat(result.getExtensions()).containsKey("authorization");
+    Map<?, ?> summary = (Map<?, ?>) result.getExtensions().get("authorization");
+    assertThat(summary.get("deniedFields")).isEqualTo(Arrays.asList("Author.lastName", "Book.rating"));
+    assertThat(summary.get("deniedFieldCount")).isEqualTo(2);
+  }
+
+  @Test
+  public void countsDeniedFieldsParsedWithoutSourceLocations() {
+    AuthzInstrumentation instrumentation = HelperAuthzExecution.instrumentation(schema)
+        .errorStrategy(AuthzErrorStrategy.SILENT)
+        .redactedOperationCacheSize(16)
+        .build();
+    GraphQL graphql = HelperAuthzExecution.graphQL(schema, instrumentation, new CachingPreparsedDocumentProvider());
+
+    ExecutionResult first = executeWithoutSourceLocations(graphql);
+    ExecutionResult second = executeWithoutSourceLocations(graphql);
+
+    for (ExecutionResult result : Arrays.asList(first, second)) {
+      Map<?, ?> summary = (Map<?, ?>) result.getExtensions().get("authorization");
+      assertThat(summary.get("deniedFields")).isEqualTo(Arrays.asList("Author.lastName", "Book.rating"));
+      assertThat(summary.get("deniedFieldCount")).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void leavesResultOfPermittedOperationUnchanged() {
+    ExecutionResult result = HelperAuthzExecution.execute(schema,
+        HelperAuthzExecution.instrumentation(schema).errorStrategy(AuthzErrorStrategy.SILENT).build(),
+        HelperUtils.readString("queries/requestWithAllowedFields.graphql"), "Test.client2");
+
+    assertThat(result.getErrors()).isEmpty();
+    assertThat(result.getExtensions()).isNull();
+  }
+
+  @Test
+  public void replaysDeniedFieldsOfCachedOperations() {
+    AuthzInstrumentation instrumentation = HelperAuthzExecution.instrumentation(schema)
+        .errorStrategy(AuthzErrorStrategy.AGGREGATED)
+        .redactedOperationCacheSize(16)
+        .build();
+    GraphQL graphql = HelperAuthzExecution.graphQL(schema, instrumentation, new CachingPreparsedDocumentProvider());
+
+    ExecutionResult first = HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2");
+    ExecutionResult second = HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2");
+
+    assertThat(second.getErrors()).hasSize(1);
+    assertThat(second.getErrors().get(0).getMessage()).isEqualTo(first.getErrors().get(0).getMessage());
+    assertThat(second.getErrors().get(0).getLocations()).isEqualTo(first.getErrors().get(0).getLocations());
+  }
+
+  private ExecutionResult executeWithoutSourceLocations(GraphQL graphql) {
+    return graphql.execute(ExecutionInput.newExecutionInput()
+        .query(requestAllFields)
+        .context("Test.client2")
+        .graphQLContext(Collections.singletonMap(ParserOptions.class,
+            ParserOptions.newParserOptions().captureSourceLocation(false).build()))
+        .build());
+  }
+}
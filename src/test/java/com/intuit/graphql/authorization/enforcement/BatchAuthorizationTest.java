@@ -0,0 +1,124 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.authorization.enforcement.HelperAuthzExecution.DenyingExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
+import com.intuit.graphql.authorization.extension.BatchAuthorizationExtension;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationEnvironment;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationResult;
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ExecutionResult;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLSchema;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchAuthorizationTest {
+
+  private GraphQLSchema schema;
+
+  @Before
+  public void init() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+  }
+
+  @Test
+  public void asksExtensionOnceAboutAllPermittedFields() {
+    RecordingBatchExtension extension = new RecordingBatchExtension(AuthorizationTargets.ALL_FIELDS);
+
+    ExecutionResult result = HelperAuthzExecution.execute(schema, extension,
+        HelperUtils.readString("queries/requestAllFields.graphql"), "Test.client2");
+
+    assertThat(extension.batches).hasSize(1);
+    assertThat(extension.batches.get(0))
+        .contains(FieldCoordinates.coordinates("Book", "name"), FieldCoordinates.coordinates("Author", "firstName"))
+        .doesNotContain(FieldCoordinates.coordinates("Book", "rating"),
+            FieldCoordinates.coordinates("Author", "lastName"));
+    assertThat(result.getErrors()).hasSize(3);
+    Map<String, Map<String, Object>> data = result.getData();
+    assertThat(data.get("bookById")).doesNotContainKey("name").containsKey("id");
+  }
+
+  @Test
+  public void batchesOnlyTargetedFields() {
+    RecordingBatchExtension extension = new RecordingBatchExtension(
+        AuthorizationTargets.ofFields(FieldCoordinates.coordinates("Book", "name")));
+
+    ExecutionResult result = HelperAuthzExecution.execute(schema, extension,
+        HelperUtils.readString("queries/requestAllFields.graphql"), "Test.client1");
+
+    assertThat(extension.batches).containsExactly(
+        Collections.singletonList(FieldCoordinates.coordinates("Book", "name")));
+    assertThat(result.getErrors()).hasSize(1);
+  }
+
+  @Test
+  public void skipsCallWithoutTargetedFields() {
+    RecordingBatchExtension extension = new RecordingBatchExtension(
+        AuthorizationTargets.ofFields(FieldCoordinates.coordinates("Book", "rating")));
+
+    ExecutionResult result = HelperAuthzExecution.execute(schema, extension,
+        HelperUtils.readString("queries/requestAllFields.graphql"), "Test.client2");
+
+    assertThat(extension.batches).isEmpty();
+    assertThat(result.getErrors()).hasSize(2);
+  }
+
+  @Test
+  public void skipsFieldsOfFragmentsSpreadBelowDeniedFields() {
+    RecordingBatchExtension extension = new RecordingBatchExtension(AuthorizationTargets.ALL_FIELDS);
+
+    HelperAuthzExecution.execute(schema, extension,
+        "{ bookById(id: \"book-1\") { id } allBooks { ...bookFields } }"
+            + " fragment bookFields on Book { name pageCount }", "Test.client2");
+
+    assertThat(extension.batches).containsExactly(Arrays.asList(FieldCoordinates.coordinates("Query", "bookById"),
+        FieldCoordinates.coordinates("Book", "id")));
+  }
+
+  @Test
+  public void collectsFieldsOfFragmentSpreadTwiceOnce() {
+    RecordingBatchExtension extension = new RecordingBatchExtension(AuthorizationTargets.ALL_FIELDS);
+
+    HelperAuthzExecution.execute(schema, extension,
+        "{ bookById(id: \"book-1\") { ...bookFields author { firstName } ...bookFields } }"
+            + " fragment bookFields on Book { id }", "Test.client2");
+
+    assertThat(extension.batches).containsExactly(Arrays.asList(FieldCoordinates.coordinates("Query", "bookById"),
+        FieldCoordinates.coordinates("Book", "id"), FieldCoordinates.coordinates("Book", "author"),
+        FieldCoordinates.coordinates("Author", "firstName")));
+  }
+
+  private static class RecordingBatchExtension implements BatchAuthorizationExtension {
+
+    private final DenyingExtension denyingExtension;
+    private final List<List<FieldCoordinates>> batches = new ArrayList<>();
+
+    private RecordingBatchExtension(AuthorizationTargets targets) {
+      this.denyingExtension = new DenyingExtension("name", targets);
+    }
+
+    @Override
+    public List<FieldAuthorizationResult> authorizeAll(
+        List<FieldAuthorizationEnvironment> fieldAuthorizationEnvironments) {
+      batches.add(fieldAuthorizationEnvironments.stream()
+          .map(FieldAuthorizationEnvironment::getFieldCoordinates)
+          .collect(Collectors.toList()));
+      return fieldAuthorizationEnvironments.stream()
+          .map(denyingExtension::authorize)
+          .collect(Collectors.toList());
+    }
+
+    @Override
+    public AuthorizationTargets getTargets() {
+      return denyingExtension.getTargets();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.introspection.Introspection;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLNamedType;
+import graphql.schema.GraphQLSchema;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BitSetPermissionVerifierTest {
+
+  private GraphQLSchema schema;
+  private AuthorizationHolder mapHolder;
+  private AuthorizationHolder bitSetHolder;
+
+  @Before
+  public void init() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    Map<String, Map<String, Set<String>>> scopeToType = AuthzInstrumentation.getAuthorizationFactory(schema)
+        .parse(new HelperAuthzClientConfiguration().getQueriesByClient());
+    mapHolder = new AuthorizationHolder(scopeToType, 0, PolicyEngine.TYPE_FIELD_MAP);
+    bitSetHolder = new AuthorizationHolder(scopeToType, 0, PolicyEngine.BITSET);
+  }
+
+  @Test
+  public void usesBitSetVerifierForBitSetEngine() {
+    assertThat(bitSetHolder.getPermissionVerifier(Collections.singleton("Test.client2"), schema))
+        .isInstanceOf(BitSetPermissionVerifier.class);
+    assertThat(mapHolder.getPermissionVerifier(Collections.singleton("Test.client2"), schema))
+        .isInstanceOf(TypeFieldPermissionVerifier.class);
+  }
+
+  @Test
+  public void permitsSameTypesAndFieldsAsTypeFieldPermissionVerifier() {
+    List<Set<String>> scopeCombinations = Arrays.asList(
+        Collections.emptySet(),
+        Collections.singleton("Test.unknown"),
+        Collections.singleton("Test.client1"),
+        Collections.singleton("Test.client2"),
+        new HashSet<>(Arrays.asList("Test.client2", "Test.client3")),
+        new HashSet<>(Arrays.asList("Test.client1", "Test.client2", "Test.client4", "Test.client5", "Test.client6")));
+
+    for (Set<String> scopes : scopeCombinations) {
+      PermissionVerifier expected = mapHolder.getPermissionVerifier(scopes, schema);
+      PermissionVerifier actual = bitSetHolder.getPermissionVerifier(scopes, schema);
+
+      for (GraphQLNamedType type : schema.getAllTypesAsList()) {
+        assertThat(actual.isPermitted(type)).as("%s %s", scopes, type.getName())
+            .isEqualTo(expected.isPermitted(type));
+        if (type instanceof GraphQLFieldsContainer) {
+          for (GraphQLFieldDefinition field : ((GraphQLFieldsContainer) type).getFieldDefinitions()) {
+            assertThat(actual.isPermitted(type, field)).as("%s %s.%s", scopes, type.getName(), field.getName())
+                .isEqualTo(expected.isPermitted(type, field));
+          }
+          assertThat(actual.isPermitted(type, Introspection.TypeNameMetaFieldDef))
+              .as("%s %s.__typename", scopes, type.getName())
+              .isEqualTo(expected.isPermitted(type, Introspection.TypeNameMetaFieldDef));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void permitsSchemaIntrospectionOnQueryType() {
+    PermissionVerifier verifier = bitSetHolder.getPermissionVerifier(Collections.emptySet(), schema);
+
+    assertThat(verifier.isPermitted(schema.getQueryType(), Introspection.SchemaMetaFieldDef)).isTrue();
+    assertThat(verifier.isPermitted(schema.getQueryType(), Introspection.TypeNameMetaFieldDef)).isFalse();
+  }
+
+  @Test
+  public void fallsBackToNamesForTypesOfAnotherSchemaInstance() {
+    GraphQLSchema otherSchema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    GraphQLFieldsContainer otherBookType = (GraphQLFieldsContainer) otherSchema.getType("Book");
+    PermissionVerifier verifier = bitSetHolder.getPermissionVerifier(Collections.singleton("Test.client2"), schema);
+
+    assertThat(otherBookType).isNotSameAs(schema.getType("Book"));
+    assertThat(verifier.isPermitted(otherBookType)).isTrue();
+    assertThat(verifier.isPermitted(otherBookType, otherBookType.getFieldDefinition("author"))).isTrue();
+    assertThat(verifier.isPermitted(otherBookType, otherBookType.getFieldDefinition("rating"))).isFalse();
+  }
+}
@@ -0,0 +1,93 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.authorization.util.ScopeProvider;
+import com.intuit.graphql.authorization.util.ScopeSet;
+import graphql.ErrorType;
+import graphql.GraphQLError;
+import graphql.Scalars;
+import graphql.language.Field;
+import graphql.language.SourceLocation;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLObjectType;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class DeniedFieldErrorsTest {
+
+  private static final GraphQLFieldDefinition FIELD_DEFINITION = GraphQLFieldDefinition.newFieldDefinition()
+      .name("foo").type(Scalars.GraphQLString).build();
+  private static final GraphQLObjectType PARENT_TYPE = GraphQLObjectType.newObject().name("ParentType")
+      .field(FIELD_DEFINITION).build();
+
+  @Test
+  public void formatsDefaultMessageOncePerField() {
+    DeniedFieldErrors deniedFieldErrors = new DeniedFieldErrors(new ScopeProvider() {
+    });
+
+    GraphQLError first = deniedFieldErrors.create(PARENT_TYPE, FIELD_DEFINITION, field(1), ScopeSet.empty());
+    GraphQLError second = deniedFieldErrors.create(PARENT_TYPE, FIELD_DEFINITION, field(2), ScopeSet.empty());
+
+    assertThat(first.getMessage()).isEqualTo("403 - Not authorized to access field=foo of type=ParentType");
+    assertThat(second.getMessage()).isSameAs(first.getMessage());
+    assertThat(first.getErrorType()).isEqualTo(ErrorType.DataFetchingException);
+    assertThat(first.getLocations()).containsExactly(new SourceLocation(1, 1));
+    assertThat(second.getLocations()).containsExactly(new SourceLocation(2, 1));
+  }
+
+  @Test
+  public void sharesMessagesBetweenCopiesOfTheSchema() {
+    CountingScopeProvider cacheable = new CountingScopeProvider(true);
+    DeniedFieldErrors deniedFieldErrors = new DeniedFieldErrors(cacheable);
+    GraphQLObjectType parentTypeCopy = PARENT_TYPE.transform(builder -> builder.description("copy"));
+
+    GraphQLError first = deniedFieldErrors.create(PARENT_TYPE, FIELD_DEFINITION, field(1), ScopeSet.empty());
+    GraphQLError second = deniedFieldErrors.create(parentTypeCopy, parentTypeCopy.getFieldDefinition("foo"), field(2),
+        ScopeSet.empty());
+
+    assertThat(second.getMessage()).isSameAs(first.getMessage());
+    assertThat(cacheable.calls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void cachesOverriddenMessageOnlyIfDeclaredCacheable() {
+    CountingScopeProvider perRequest = new CountingScopeProvider(false);
+    CountingScopeProvider cacheable = new CountingScopeProvider(true);
+
+    DeniedFieldErrors perRequestErrors = new DeniedFieldErrors(perRequest);
+    DeniedFieldErrors cacheableErrors = new DeniedFieldErrors(cacheable);
+    for (int line = 1; line <= 3; line++) {
+      perRequestErrors.create(PARENT_TYPE, FIELD_DEFINITION, field(line), ScopeSet.empty());
+      cacheableErrors.create(PARENT_TYPE, FIELD_DEFINITION, field(line), ScopeSet.empty());
+    }
+
+    assertThat(perRequest.calls.get()).isEqualTo(3);
+    assertThat(cacheable.calls.get()).isEqualTo(1);
+  }
+
+  private static Field field(int line) {
+    return Field.newField("foo").sourceLocation(new SourceLocation(line, 1)).build();
+  }
+
+  private static class CountingScopeProvider implements ScopeProvider {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final boolean cacheable;
+
+    private CountingScopeProvider(boolean cacheable) {
+      this.cacheable = cacheable;
+    }
+
+    @Override
+    public String getErrorMessage(RedactionContext redactionContext) {
+      calls.incrementAndGet();
+      return "denied " + redactionContext.getFieldCoordinates();
+    }
+
+    @Override
+    public boolean isErrorMessageCacheable() {
+      return cacheable;
+    }
+  }
+}
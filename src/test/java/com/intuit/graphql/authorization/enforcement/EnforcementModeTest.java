@@ -0,0 +1,110 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.authorization.enforcement.HelperAuthzExecution.CachingPreparsedDocumentProvider;
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ErrorType;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLError;
+import graphql.schema.GraphQLSchema;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EnforcementModeTest {
+
+  private GraphQLSchema schema;
+  private AuthzInstrumentation instrumentation;
+  private GraphQL graphql;
+
+  @Before
+  public void init() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    instrumentation = HelperAuthzExecution.instrumentation(schema).enforcementMode(EnforcementMode.VALIDATE).build();
+    graphql = HelperAuthzExecution.graphQL(schema, instrumentation);
+  }
+
+  @Test
+  public void rejectsOperationWithDeniedFields() {
+    ExecutionResult result = HelperAuthzExecution.execute(graphql,
+        HelperUtils.readString("queries/requestAllFields.graphql"), "Test.client2");
+
+    assertThat(result.<Object>getData()).isNull();
+    assertThat(result.getErrors()).hasSize(2);
+    assertThat(result.getErrors()).extracting(GraphQLError::getErrorType)
+        .containsOnly(ErrorType.ValidationError);
+    assertThat(result.getErrors()).extracting(GraphQLError::getMessage)
+        .anyMatch(message -> message.contains("'lastName'"))
+        .anyMatch(message -> message.contains("'rating'"));
+  }
+
+  @Test
+  public void executesOperationWithPermittedFields() {
+    ExecutionResult result = HelperAuthzExecution.execute(graphql,
+        HelperUtils.readString("queries/requestWithAllowedFields.graphql"), "Test.client2");
+
+    assertThat(result.getErrors()).isEmpty();
+    Map<String, Map<String, Object>> data = result.getData();
+    assertThat(data.get("bookById")).containsKeys("id", "name", "pageCount", "author");
+  }
+
+  @Test
+  public void rejectsDeniedMutation() {
+    ExecutionResult result = HelperAuthzExecution.execute(graphql,
+        "mutation { removeBookRecord(input: {id: \"book-1\"}) { id } }", "Test.client2");
+
+    assertThat(result.<Object>getData()).isNull();
+    assertThat(result.getErrors()).hasSize(1);
+    assertThat(result.getErrors().get(0).getErrorType()).isEqualTo(ErrorType.ValidationError);
+  }
+
+  @Test
+  public void rejectsCachedDocumentValidatedForOtherPermissions() {
+    graphql = HelperAuthzExecution.graphQL(schema, instrumentation, new CachingPreparsedDocumentProvider());
+    String query = HelperUtils.readString("queries/requestAllFields.graphql");
+
+    ExecutionResult permitted = HelperAuthzExecution.execute(graphql, query, "Test.client1");
+    ExecutionResult denied = HelperAuthzExecution.execute(graphql, query, "Test.client2");
+
+    assertThat(permitted.getErrors()).isEmpty();
+    assertThat(denied.<Object>getData()).isNull();
+    assertThat(denied.getErrors()).hasSize(2);
+    assertThat(denied.getErrors()).extracting(GraphQLError::getErrorType)
+        .containsOnly(ErrorType.ValidationError);
+  }
+
+  @Test
+  public void revalidatesCachedDocumentRejectedForOtherPermissions() {
+    graphql = HelperAuthzExecution.graphQL(schema, instrumentation,
+        new AuthzPreparsedDocumentProvider(new CachingPreparsedDocumentProvider()));
+    String query = HelperUtils.readString("queries/requestAllFields.graphql");
+
+    ExecutionResult denied = HelperAuthzExecution.execute(graphql, query, "Test.client2");
+    ExecutionResult permitted = HelperAuthzExecution.execute(graphql, query, "Test.client1");
+    ExecutionResult deniedAgain = HelperAuthzExecution.execute(graphql, query, "Test.client2");
+
+    assertThat(denied.getErrors()).hasSize(2);
+    assertThat(permitted.getErrors()).isEmpty();
+    Map<String, Map<String, Object>> data = permitted.getData();
+    assertThat(data.get("bookById")).containsKeys("rating", "author");
+    assertThat(deniedAgain.<Object>getData()).isNull();
+    assertThat(deniedAgain.getErrors()).hasSize(2);
+  }
+
+  @Test
+  public void reportsDeniedFieldOfCachedDocumentPassingValidation() {
+    graphql = HelperAuthzExecution.graphQL(schema, instrumentation, new CachingPreparsedDocumentProvider());
+    String query = "mutation { __typename }";
+
+    ExecutionResult permitted = HelperAuthzExecution.execute(graphql, query, "Test.client1");
+    ExecutionResult denied = HelperAuthzExecution.execute(graphql, query, "Test.client3");
+
+    assertThat(permitted.getErrors()).isEmpty();
+    assertThat(denied.<Object>getData()).isNull();
+    assertThat(denied.getErrors()).hasSize(1);
+    assertThat(denied.getErrors().get(0).getMessage())
+        .isEqualTo("403 - Not authorized to access fields=Mutation.__typename");
+  }
+}
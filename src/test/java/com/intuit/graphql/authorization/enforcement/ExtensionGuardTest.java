@@ -0,0 +1,242 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.intuit.graphql.authorization.extension.AsyncAuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationEnvironment;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationResult;
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.language.Field;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExtensionGuardTest {
+
+  private static final AuthorizationTargets BOOK_FIELDS = AuthorizationTargets.ofFields(
+      FieldCoordinates.coordinates("Book", "name"), FieldCoordinates.coordinates("Book", "pageCount"));
+
+  private GraphQLSchema schema;
+  private ExecutorService executor;
+
+  @Before
+  public void init() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    executor = Executors.newFixedThreadPool(2, runnable -> new Thread(runnable, "authz-extension"));
+  }
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void deniesFieldsUndecidedWithinTimeout() {
+    AsyncAuthorizationExtension extension = new AsyncAuthorizationExtension() {
+      @Override
+      public CompletableFuture<FieldAuthorizationResult> authorizeAsync(
+          FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+        return "name".equals(fieldAuthorizationEnvironment.getField().getName())
+            ? new CompletableFuture<>()
+            : CompletableFuture.completedFuture(FieldAuthorizationResult.ALLOWED_FIELD_AUTH_RESULT);
+      }
+
+      @Override
+      public AuthorizationTargets getTargets() {
+        return BOOK_FIELDS;
+      }
+    };
+    AuthzInstrumentation instrumentation = HelperAuthzExecution.instrumentation(schema, extension)
+        .extensionExecutor(executor)
+        .extensionTimeout(Duration.ofMillis(50))
+        .build();
+
+    ExecutionResult result = HelperAuthzExecution.execute(schema, instrumentation,
+        HelperUtils.readString("queries/requestWithAllowedFields.graphql"), "Test.client2");
+
+    assertThat(result.getErrors()).hasSize(1);
+    GraphQLError error = result.getErrors().get(0);
+    assertThat(error.getMessage())
+        .isEqualTo("403 - Authorization extension did not decide on field=Book.name: TIMEOUT");
+    assertThat(error.getExtensions()).containsEntry(ExtensionGuard.FALLBACK_EXTENSION, ExtensionGuard.TIMEOUT);
+    Map<String, Map<String, Object>> data = result.getData();
+    assertThat(data.get("bookById")).doesNotContainKey("name").containsKey("pageCount");
+    assertThat(instrumentation.getExtensionStats()).isEqualTo(new ExtensionStats(2, 0, 1, 0, 0));
+  }
+
+  @Test
+  public void allowsFieldsOfFailedExtensionWithAllowFallback() {
+    AuthzInstrumentation instrumentation = HelperAuthzExecution.instrumentation(schema,
+            new FailingExtension(new AtomicInteger()))
+        .extensionExecutor(executor)
+        .extensionTimeout(Duration.ofSeconds(5))
+        .extensionFallback(ExtensionFallback.ALLOW)
+        .build();
+
+    ExecutionResult result = HelperAuthzExecution.execute(schema, instrumentation,
+        HelperUtils.readString("queries/requestWithAllowedFields.graphql"), "Test.client2");
+
+    assertThat(result.getErrors()).isEmpty();
+    Map<String, Map<String, Object>> data = result.getData();
+    assertThat(data.get("bookById")).containsKeys("name", "pageCount");
+    assertThat(instrumentation.getExtensionStats().getFailureCount()).isEqualTo(2);
+    assertThat(instrumentation.getExtensionStats().fallbackCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void skipsFailingExtensionUntilTrialSucceeds() {
+    AtomicLong nanoClock = new AtomicLong();
+    ExtensionGuard guard = new ExtensionGuard(null, ExtensionFallback.DENY, 0.5, Duration.ofSeconds(30),
+        Runnable::run, nanoClock::get);
+    AtomicInteger calls = new AtomicInteger();
+    List<FieldAuthorizationEnvironment> fields = fields(10);
+
+    List<FieldAuthorizationResult> failed = guard.authorizeAll(new FailingExtension(calls), fields);
+    List<FieldAuthorizationResult> skipped = guard.authorizeAll(new FailingExtension(calls), fields);
+
+    assertThat(failed).noneMatch(FieldAuthorizationResult::isAllowed);
+    assertThat(skipped).noneMatch(FieldAuthorizationResult::isAllowed);
+    assertThat(skipped.get(0).getGraphqlErrorException().getExtensions())
+        .containsEntry(ExtensionGuard.FALLBACK_EXTENSION, ExtensionGuard.CIRCUIT_OPEN);
+    assertThat(calls).hasValue(10);
+    assertThat(guard.stats()).isEqualTo(new ExtensionStats(10, 10, 0, 10, 1));
+
+    nanoClock.addAndGet(Duration.ofSeconds(30).toNanos());
+    AuthorizationExtension allowing =
+        fieldAuthorizationEnvironment -> FieldAuthorizationResult.ALLOWED_FIELD_AUTH_RESULT;
+
+    assertThat(guard.authorizeAll(allowing, fields)).allMatch(FieldAuthorizationResult::isAllowed);
+    assertThat(guard.authorizeAll(allowing, fields)).allMatch(FieldAuthorizationResult::isAllowed);
+    assertThat(guard.stats().getShortCircuitCount()).isEqualTo(10);
+  }
+
+  @Test
+  public void opensOnFailureRateOfRequestLargerThanWindow() {
+    ExtensionGuard guard = new ExtensionGuard(null, ExtensionFallback.DENY, 0.5, Duration.ofSeconds(30),
+        Runnable::run, new AtomicLong()::get);
+    AtomicInteger calls = new AtomicInteger();
+    AuthorizationExtension everyOtherFails = fieldAuthorizationEnvironment -> {
+      if (calls.incrementAndGet() % 2 == 0) {
+        throw new IllegalStateException("policy decision point unavailable");
+      }
+      return FieldAuthorizationResult.ALLOWED_FIELD_AUTH_RESULT;
+    };
+
+    guard.authorizeAll(everyOtherFails, fields(300));
+
+    assertThat(guard.stats().getFailureCount()).isEqualTo(150);
+    assertThat(guard.stats().getCircuitOpenCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void reopensAfterFailedTrial() {
+    AtomicLong nanoClock = new AtomicLong();
+    ExtensionGuard guard = new ExtensionGuard(null, ExtensionFallback.DENY, 0.5, Duration.ofSeconds(30),
+        Runnable::run, nanoClock::get);
+    AtomicInteger calls = new AtomicInteger();
+
+    guard.authorizeAll(new FailingExtension(calls), fields(10));
+    nanoClock.addAndGet(Duration.ofSeconds(30).toNanos());
+    guard.authorizeAll(new FailingExtension(calls), fields(1));
+    guard.authorizeAll(new FailingExtension(calls), fields(1));
+
+    assertThat(calls).hasValue(11);
+    assertThat(guard.stats().getCircuitOpenCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void endsTrialWhenExecutorRejectsCalls() {
+    AtomicLong nanoClock = new AtomicLong();
+    AtomicBoolean rejecting = new AtomicBoolean();
+    Executor rejectingExecutor = command -> {
+      if (rejecting.get()) {
+        throw new RejectedExecutionException("queue full");
+      }
+      command.run();
+    };
+    ExtensionGuard guard = new ExtensionGuard(null, ExtensionFallback.DENY, 0.5, Duration.ofSeconds(30),
+        rejectingExecutor, nanoClock::get);
+    AuthorizationExtension allowing =
+        fieldAuthorizationEnvironment -> FieldAuthorizationResult.ALLOWED_FIELD_AUTH_RESULT;
+
+    guard.authorizeAll(new FailingExtension(new AtomicInteger()), fields(10));
+    nanoClock.addAndGet(Duration.ofSeconds(30).toNanos());
+    rejecting.set(true);
+    List<FieldAuthorizationResult> rejected = guard.authorizeAll(allowing, fields(1));
+
+    assertThat(rejected.get(0).getGraphqlErrorException().getExtensions())
+        .containsEntry(ExtensionGuard.FALLBACK_EXTENSION, ExtensionGuard.FAILURE);
+    assertThat(guard.stats().getCircuitOpenCount()).isEqualTo(2);
+
+    nanoClock.addAndGet(Duration.ofSeconds(30).toNanos());
+    rejecting.set(false);
+    assertThat(guard.authorizeAll(allowing, fields(1))).allMatch(FieldAuthorizationResult::isAllowed);
+    assertThat(guard.authorizeAll(allowing, fields(1))).allMatch(FieldAuthorizationResult::isAllowed);
+    assertThat(guard.stats().getShortCircuitCount()).isZero();
+  }
+
+  @Test
+  public void requiresExecutorWithTimeout() {
+    assertThatThrownBy(() -> HelperAuthzExecution.instrumentation(schema, new FailingExtension(new AtomicInteger()))
+        .extensionTimeout(Duration.ofSeconds(1))
+        .build())
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("extensionExecutor");
+  }
+
+  private List<FieldAuthorizationEnvironment> fields(int count) {
+    GraphQLObjectType bookType = schema.getObjectType("Book");
+    return IntStream.range(0, count)
+        .mapToObj(i -> FieldAuthorizationEnvironment.builder()
+            .field(Field.newField("name").build())
+            .arguments(Collections.emptyMap())
+            .fieldCoordinates(FieldCoordinates.coordinates("Book", "name"))
+            .fieldDefinition(bookType.getFieldDefinition("name"))
+            .parentType(bookType)
+            .graphQLSchema(schema)
+            .build())
+        .collect(Collectors.toList());
+  }
+
+  private static class FailingExtension implements AuthorizationExtension {
+
+    private final AtomicInteger calls;
+
+    private FailingExtension(AtomicInteger calls) {
+      this.calls = calls;
+    }
+
+    @Override
+    public FieldAuthorizationResult authorize(FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+      calls.incrementAndGet();
+      throw new IllegalStateException("policy decision point unavailable");
+    }
+
+    @Override
+    public AuthorizationTargets getTargets() {
+      return BOOK_FIELDS;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import com.intuit.graphql.authorization.extension.AuthorizationExtension;
+import com.intuit.graphql.authorization.extension.AuthorizationTargets;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationEnvironment;
+import com.intuit.graphql.authorization.extension.FieldAuthorizationResult;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphqlErrorException;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLSchema;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+public class HelperAuthzExecution {
+
+  public static AuthzInstrumentation.AuthzInstrumentationBuilder instrumentation(GraphQLSchema schema) {
+    return AuthzInstrumentation.builder()
+        .configuration(new HelperAuthzClientConfiguration())
+        .schema(schema)
+        .scopeProvider(new HelperScopeProvider());
+  }
+
+  public static AuthzInstrumentation.AuthzInstrumentationBuilder instrumentation(GraphQLSchema schema,
+      AuthorizationExtension extension) {
+    return instrumentation(schema).authorizationExtensionProvider((executionContext, parameters) -> extension);
+  }
+
+  public static GraphQL graphQL(GraphQLSchema schema, AuthzInstrumentation instrumentation) {
+    return GraphQL.newGraphQL(schema).instrumentation(instrumentation).build();
+  }
+
+  public static GraphQL graphQL(GraphQLSchema schema, AuthzInstrumentation instrumentation,
+      PreparsedDocumentProvider preparsedDocumentProvider) {
+    return GraphQL.newGraphQL(schema)
+        .instrumentation(instrumentation)
+        .preparsedDocumentProvider(preparsedDocumentProvider)
+        .build();
+  }
+
+  public static ExecutionResult execute(GraphQLSchema schema, AuthzInstrumentation instrumentation, String query,
+      String scopes) {
+    return execute(graphQL(schema, instrumentation), query, scopes);
+  }
+
+  public static ExecutionResult execute(GraphQLSchema schema, AuthorizationExtension extension, String query,
+      String scopes) {
+    return execute(schema, instrumentation(schema, extension).build(), query, scopes);
+  }
+
+  public static ExecutionResult execute(GraphQL graphql, String query, String scopes) {
+    return execute(graphql, query, scopes, Collections.emptyMap());
+  }
+
+  public static ExecutionResult execute(GraphQL graphql, String query, String scopes, Map<String, Object> variables) {
+    return graphql.execute(ExecutionInput.newExecutionInput().query(query).context(scopes).variables(variables)
+        .build());
+  }
+
+  /**
+   * Caches documents by query text only, like most caches in front of graphql-java do.
+   */
+  public static class CachingPreparsedDocumentProvider implements PreparsedDocumentProvider {
+
+    private final Map<String, PreparsedDocumentEntry> documents = new ConcurrentHashMap<>();
+
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+        Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+      return documents.computeIfAbsent(executionInput.getQuery(),
+          query -> parseAndValidateFunction.apply(executionInput));
+    }
+  }
+
+  /**
+   * Denies every field with the given name, with the message "denied " and the field coordinates, and records the
+   * coordinates of the fields it is asked about.
+   */
+  public static class DenyingExtension implements AuthorizationExtension {
+
+    private final String deniedFieldName;
+    private final AuthorizationTargets targets;
+    private final List<FieldCoordinates> authorized = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param deniedFieldName name of the denied fields
+     * @param targets fields the extension is asked about, null for the default targets
+     */
+    public DenyingExtension(String deniedFieldName, AuthorizationTargets targets) {
+      this.deniedFieldName = deniedFieldName;
+      this.targets = targets;
+    }
+
+    @Override
+    public FieldAuthorizationResult authorize(FieldAuthorizationEnvironment fieldAuthorizationEnvironment) {
+      authorized.add(fieldAuthorizationEnvironment.getFieldCoordinates());
+      if (!deniedFieldName.equals(fieldAuthorizationEnvironment.getField().getName())) {
+        return FieldAuthorizationResult.ALLOWED_FIELD_AUTH_RESULT;
+      }
+      return FieldAuthorizationResult.createDeniedResult(GraphqlErrorException.newErrorException()
+          .message("denied " + fieldAuthorizationEnvironment.getFieldCoordinates())
+          .build());
+    }
+
+    @Override
+    public AuthorizationTargets getTargets() {
+      return targets == null ? AuthorizationExtension.super.getTargets() : targets;
+    }
+
+    public List<FieldCoordinates> getAuthorized() {
+      return authorized;
+    }
+  }
+}
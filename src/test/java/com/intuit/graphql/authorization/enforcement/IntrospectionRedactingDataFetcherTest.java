@@ -1,5 +1,122 @@
 package com.intuit.graphql.authorization.enforcement;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.introspection.Introspection;
+import graphql.introspection.IntrospectionQuery;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
 public class IntrospectionRedactingDataFetcherTest {
 
+  private GraphQLSchema schema;
+  private AuthzInstrumentation instrumentation;
+  private GraphQL graphql;
+
+  @Before
+  public void init() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    instrumentation = HelperAuthzExecution.instrumentation(schema).redactedIntrospectionCacheSize(256).build();
+    graphql = HelperAuthzExecution.graphQL(schema, instrumentation);
+  }
+
+  @Test
+  public void onlyTypeAndFieldListsAreRedacted() {
+    GraphQLObjectType bookType = (GraphQLObjectType) schema.getType("Book");
+
+    assertThat(IntrospectionRedactingDataFetcher.isRedactedIntrospectionField(Introspection.__Schema,
+        Introspection.__Schema.getFieldDefinition("types"))).isTrue();
+    assertThat(IntrospectionRedactingDataFetcher.isRedactedIntrospectionField(Introspection.__Type,
+        Introspection.__Type.getFieldDefinition("fields"))).isTrue();
+    assertThat(IntrospectionRedactingDataFetcher.isRedactedIntrospectionField(Introspection.__Type,
+        Introspection.__Type.getFieldDefinition("possibleTypes"))).isTrue();
+    assertThat(IntrospectionRedactingDataFetcher.isRedactedIntrospectionField(Introspection.__Type,
+        Introspection.__Type.getFieldDefinition("name"))).isFalse();
+    assertThat(IntrospectionRedactingDataFetcher.isRedactedIntrospectionField(bookType,
+        bookType.getFieldDefinition("id"))).isFalse();
+  }
+
+  @Test
+  public void redactsTypesAndFieldsOfIntrospection() {
+    List<Map<String, Object>> types = introspectTypes("Test.client2");
+
+    assertThat(types).hasSize(19);
+    assertThat(fieldNames(types, "Query")).containsExactly("bookById");
+    assertThat(fieldNames(types, "Book")).containsExactly("id", "name", "pageCount", "author");
+    assertThat(fieldNames(types, "Author")).containsExactly("firstName");
+    assertThat(fieldNames(types, "Mutation")).containsExactly("updateBookRecord");
+  }
+
+  @Test
+  public void redactsAllObjectTypesWithoutScopes() {
+    List<Map<String, Object>> types = introspectTypes("");
+
+    assertThat(types).hasSize(15);
+    assertThat(types).extracting(type -> type.get("name"))
+        .doesNotContain("Query", "Mutation", "Book", "Author", "Rating")
+        .contains("BookInput", "AuthorInput");
+  }
+
+  @Test
+  public void reusesFilteredListsOfSamePermissions() {
+    List<Map<String, Object>> first = introspectTypes("Test.client2");
+    long misses = instrumentation.getRedactedIntrospectionCacheStats().getMissCount();
+    List<Map<String, Object>> second = introspectTypes("Test.client2");
+
+    assertThat(second).isEqualTo(first);
+    assertThat(instrumentation.getRedactedIntrospectionCacheStats().getMissCount()).isEqualTo(misses);
+    assertThat(instrumentation.getRedactedIntrospectionCacheStats().getHitCount()).isPositive();
+  }
+
+  @Test
+  public void filtersPerPermissions() {
+    assertThat(fieldNames(introspectTypes("Test.client1"), "Author")).containsExactly("firstName", "lastName");
+    assertThat(fieldNames(introspectTypes("Test.client2"), "Author")).containsExactly("firstName");
+  }
+
+  @Test
+  public void bypassesDisabledCache() {
+    instrumentation = HelperAuthzExecution.instrumentation(schema).build();
+    graphql = HelperAuthzExecution.graphQL(schema, instrumentation);
+
+    assertThat(fieldNames(introspectTypes("Test.client2"), "Author")).containsExactly("firstName");
+    assertThat(instrumentation.getRedactedIntrospectionCacheStats().getHitCount()).isZero();
+    assertThat(instrumentation.getRedactedIntrospectionCacheStats().getMissCount()).isZero();
+  }
+
+  @Test
+  public void invalidatesOnReload() {
+    introspectTypes("Test.client2");
+    instrumentation.reloadClients(Collections.emptyMap());
+    long hits = instrumentation.getRedactedIntrospectionCacheStats().getHitCount();
+    introspectTypes("Test.client2");
+
+    assertThat(instrumentation.getRedactedIntrospectionCacheStats().getHitCount()).isEqualTo(hits);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Map<String, Object>> introspectTypes(String scopes) {
+    ExecutionResult result = HelperAuthzExecution.execute(graphql, IntrospectionQuery.INTROSPECTION_QUERY, scopes);
+    assertThat(result.getErrors()).isEmpty();
+    Map<String, Object> data = result.getData();
+    return (List<Map<String, Object>>) ((Map<String, Object>) data.get("__schema")).get("types");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Object> fieldNames(List<Map<String, Object>> types, String typeName) {
+    return types.stream()
+        .filter(type -> typeName.equals(type.get("name")))
+        .flatMap(type -> ((List<Map<String, Object>>) type.get("fields")).stream())
+        .map(field -> field.get("name"))
+        .collect(Collectors.toList());
+  }
 }
@@ -0,0 +1,114 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.intuit.graphql.authorization.config.AuthzClient;
+import com.intuit.graphql.authorization.config.AuthzClientConfiguration;
+import com.intuit.graphql.authorization.enforcement.AuthzInstrumentation.AuthzInstrumentationState;
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ExecutionInput;
+import graphql.GraphQL;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLSchema;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PolicyReloadTest {
+
+  private GraphQLSchema schema;
+  private AuthzInstrumentation instrumentation;
+  private GraphQL graphql;
+  private String requestAllFields;
+
+  @Before
+  public void init() {
+    requestAllFields = HelperUtils.readString("queries/requestAllFields.graphql");
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    instrumentation = HelperAuthzExecution.instrumentation(schema).build();
+    graphql = HelperAuthzExecution.graphQL(schema, instrumentation);
+  }
+
+  @Test
+  public void reloadedPolicyAppliesToNewRequests() {
+    assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2").getErrors()).hasSize(2);
+
+    long version = instrumentation.reloadPolicy(client2WithAllFields());
+
+    assertThat(version).isEqualTo(2);
+    assertThat(instrumentation.getPolicySnapshot().getVersion()).isEqualTo(2);
+    assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2").getErrors()).isEmpty();
+  }
+
+  @Test
+  public void requestKeepsSnapshotItStartedWith() {
+    AuthzInstrumentationState state = instrumentation.createState(new InstrumentationCreateStateParameters(schema,
+        ExecutionInput.newExecutionInput().query(requestAllFields).context("Test.client2").build()));
+
+    instrumentation.reloadPolicy(client2WithAllFields());
+
+    GraphQLFieldsContainer bookType = (GraphQLFieldsContainer) schema.getType("Book");
+    assertThat(state.getPolicyVersion()).isEqualTo(1);
+    assertThat(state.getPermissionVerifier().isPermitted(bookType, bookType.getFieldDefinition("rating"))).isFalse();
+  }
+
+  @Test
+  public void reloadsAsynchronously() {
+    assertThat(instrumentation.reloadPolicyAsync(client2WithAllFields(), ForkJoinPool.commonPool()).join())
+        .isEqualTo(2);
+    assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2").getErrors()).isEmpty();
+  }
+
+  @Test
+  public void failedReloadKeepsCurrentPolicy() {
+    assertThatThrownBy(() -> instrumentation.reloadPolicy(Collections::emptyMap))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    assertThat(instrumentation.getPolicySnapshot().getVersion()).isEqualTo(1);
+    assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2").getErrors()).hasSize(2);
+  }
+
+  @Test
+  public void reloadsChangedClientsOnly() {
+    long version = instrumentation.reloadClients(client2WithAllFields().getQueriesByClient());
+
+    assertThat(version).isEqualTo(2);
+    assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2").getErrors()).isEmpty();
+    assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client3").getErrors()).isNotEmpty();
+    assertThat(instrumentation.getPolicySnapshot().getCompiledRules().getScopeToTypeMap())
+        .containsKeys("Test.client1", "Test.client3");
+  }
+
+  @Test
+  public void compilesClientsLazily() {
+    for (PolicyEngine policyEngine : PolicyEngine.values()) {
+      instrumentation = HelperAuthzExecution.instrumentation(schema)
+          .policyEngine(policyEngine)
+          .lazyCompiledClientsCacheSize(1)
+          .build();
+      graphql = HelperAuthzExecution.graphQL(schema, instrumentation);
+
+      assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2").getErrors()).hasSize(2);
+      assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client1").getErrors()).isEmpty();
+      assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2").getErrors()).hasSize(2);
+
+      instrumentation.reloadClients(client2WithAllFields().getQueriesByClient());
+      assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2").getErrors()).isEmpty();
+    }
+  }
+
+  private static AuthzClientConfiguration client2WithAllFields() {
+    AuthzClient client = new AuthzClient();
+    client.setId("Test.client2");
+    Map<AuthzClient, List<String>> queriesByClient = new HashMap<>();
+    queriesByClient.put(client,
+        Collections.singletonList(HelperUtils.readString("mocks.graphqlauthz/client/client1-permissions.graphql")));
+    return () -> queriesByClient;
+  }
+}
@@ -0,0 +1,79 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.authorization.enforcement.HelperAuthzExecution.CachingPreparsedDocumentProvider;
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RedactedOperationCacheTest {
+
+  private static final String CONDITIONAL_QUERY = "query ($withRating: Boolean!) { bookById(id: \"book-2\") "
+      + "{ id rating @include(if: $withRating) { stars } } }";
+
+  private GraphQLSchema schema;
+  private AuthzInstrumentation instrumentation;
+  private GraphQL graphql;
+  private String requestAllFields;
+
+  @Before
+  public void init() {
+    requestAllFields = HelperUtils.readString("queries/requestAllFields.graphql");
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    instrumentation = HelperAuthzExecution.instrumentation(schema).redactedOperationCacheSize(16).build();
+    graphql = HelperAuthzExecution.graphQL(schema, instrumentation, new CachingPreparsedDocumentProvider());
+  }
+
+  @Test
+  public void reusesRedactedOperationOfSameDocumentAndScopes() {
+    ExecutionResult first = HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2");
+    ExecutionResult second = HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2");
+
+    assertThat(first.getErrors()).hasSize(2);
+    assertThat(second.getErrors()).isEqualTo(first.getErrors());
+    assertThat(second.<Object>getData()).isEqualTo(first.getData());
+    assertThat(instrumentation.getRedactedOperationCacheStats().getHitCount()).isEqualTo(1);
+    assertThat(instrumentation.getRedactedOperationCacheStats().getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void cachesPermittedOperationsPerScopes() {
+    assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client1").getErrors()).isEmpty();
+    assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2").getErrors()).hasSize(2);
+    assertThat(HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client1").getErrors()).isEmpty();
+
+    assertThat(instrumentation.getRedactedOperationCacheStats().getHitCount()).isEqualTo(1);
+    assertThat(instrumentation.getRedactedOperationCacheStats().getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void sharesRedactedOperationBetweenScopesWithSamePermissions() {
+    ExecutionResult first = HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2");
+    ExecutionResult second = HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2,Test.unknown");
+
+    assertThat(second.getErrors()).isEqualTo(first.getErrors());
+    assertThat(instrumentation.getRedactedOperationCacheStats().getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void redactsVariableDependentOperationsPerRequest() {
+    assertThat(HelperAuthzExecution.execute(graphql, CONDITIONAL_QUERY, "Test.client2",
+        Collections.singletonMap("withRating", false)).getErrors()).isEmpty();
+    assertThat(HelperAuthzExecution.execute(graphql, CONDITIONAL_QUERY, "Test.client2",
+        Collections.singletonMap("withRating", true)).getErrors()).hasSize(1);
+  }
+
+  @Test
+  public void invalidatesOnReload() {
+    HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2");
+    instrumentation.reloadClients(Collections.emptyMap());
+    HelperAuthzExecution.execute(graphql, requestAllFields, "Test.client2");
+
+    assertThat(instrumentation.getRedactedOperationCacheStats().getHitCount()).isZero();
+  }
+}
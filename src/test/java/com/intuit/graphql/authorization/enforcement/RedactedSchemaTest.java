@@ -0,0 +1,131 @@
+package com.intuit.graphql.authorization.enforcement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RedactedSchemaTest {
+
+  private static final String NODE_SCHEMA = "type Query { node(id: ID!): Node book: Book }\n"
+      + "interface Node { id: ID! secret: String }\n"
+      + "type Book implements Node { id: ID! secret: String title: String }\n"
+      + "type Author implements Node { id: ID! secret: String name: String }";
+
+  private GraphQLSchema schema;
+  private AuthzInstrumentation instrumentation;
+
+  @Before
+  public void init() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    instrumentation = HelperAuthzExecution.instrumentation(schema).build();
+  }
+
+  @Test
+  public void removesDeniedFieldsAndUnreachableTypes() {
+    GraphQLSchema redactedSchema = instrumentation.getRedactedSchema(Collections.singleton("Test.client2"));
+
+    assertThat(fieldNames(redactedSchema.getQueryType())).containsExactly("bookById");
+    assertThat(fieldNames(redactedSchema.getMutationType())).containsExactly("updateBookRecord");
+    assertThat(fieldNames(redactedSchema.getObjectType("Book"))).containsExactly("id", "name", "pageCount", "author");
+    assertThat(fieldNames(redactedSchema.getObjectType("Author"))).containsExactly("firstName");
+    assertThat(redactedSchema.getType("Rating")).isNull();
+    assertThat(redactedSchema.getType("BookInput")).isNotNull();
+  }
+
+  @Test
+  public void dropsMutationTypeWithoutPermittedFields() {
+    GraphQLSchema redactedSchema = instrumentation.getRedactedSchema(Collections.singleton("Test.client3"));
+
+    assertThat(redactedSchema.getMutationType()).isNull();
+    assertThat(redactedSchema.getType("Mutation")).isNull();
+    assertThat(fieldNames(redactedSchema.getObjectType("Book"))).containsExactly("id", "name", "pageCount", "rating");
+  }
+
+  @Test
+  public void rejectsScopesWithoutQueryFields() {
+    assertThatThrownBy(() -> instrumentation.getRedactedSchema(Collections.emptySet()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void cachesSchemaPerPermissions() {
+    GraphQLSchema redactedSchema = instrumentation.getRedactedSchema(Collections.singleton("Test.client2"));
+
+    assertThat(instrumentation.getRedactedSchema(Collections.singleton("Test.client2"))).isSameAs(redactedSchema);
+    assertThat(instrumentation.getRedactedSchemaCacheStats().getHitCount()).isEqualTo(1);
+
+    instrumentation.reloadClients(Collections.emptyMap());
+    assertThat(instrumentation.getRedactedSchema(Collections.singleton("Test.client2"))).isNotSameAs(redactedSchema);
+  }
+
+  @Test
+  public void validatesAgainstRedactedSchema() {
+    GraphQL graphql = GraphQL.newGraphQL(instrumentation.getRedactedSchema(Collections.singleton("Test.client2")))
+        .build();
+
+    ExecutionResult permitted = graphql.execute("{ bookById(id: \"book-1\") { id name } }");
+    ExecutionResult denied = graphql.execute("{ bookById(id: \"book-1\") { id rating { stars } } }");
+
+    assertThat(permitted.getErrors()).isEmpty();
+    assertThat(permitted.<Object>getData()).isNotNull();
+    assertThat(denied.getErrors()).hasSize(1);
+    assertThat(denied.getErrors().get(0).getMessage()).contains("rating");
+  }
+
+  @Test
+  public void keepsInterfaceFieldsPermittedOnAnyImplementation() {
+    GraphQLSchema nodeSchema = UnExecutableSchemaGenerator.makeUnExecutableSchema(
+        new SchemaParser().parse(NODE_SCHEMA));
+    Map<String, Map<String, Set<String>>> scopeToType = new HashMap<>();
+    scopeToType.put("reader", grants("Query", "node", "book", "Book", "id", "title", "Author", "id", "secret"));
+    scopeToType.put("guest", grants("Query", "node", "book", "Book", "id", "title", "Author", "id"));
+    AuthorizationHolder holder = new AuthorizationHolder(scopeToType);
+
+    GraphQLSchema readerSchema = holder.getRedactedSchema(Collections.singleton("reader"), nodeSchema);
+    GraphQLSchema guestSchema = holder.getRedactedSchema(Collections.singleton("guest"), nodeSchema);
+
+    assertThat(fieldNames(readerSchema.getType("Node"))).containsExactly("id", "secret");
+    assertThat(fieldNames(readerSchema.getType("Book"))).containsExactly("id", "secret", "title");
+    assertThat(fieldNames(readerSchema.getType("Author"))).containsExactly("id", "secret");
+    assertThat(fieldNames(guestSchema.getType("Node"))).containsExactly("id");
+    assertThat(fieldNames(guestSchema.getType("Book"))).containsExactly("id", "title");
+    assertThat(fieldNames(guestSchema.getType("Author"))).containsExactly("id");
+  }
+
+  private static Map<String, Set<String>> grants(String... typesAndFields) {
+    Map<String, Set<String>> typeToFields = new HashMap<>();
+    String type = null;
+    for (String name : typesAndFields) {
+      if (Character.isUpperCase(name.charAt(0))) {
+        type = name;
+      } else {
+        typeToFields.computeIfAbsent(type, key -> new HashSet<>()).add(name);
+      }
+    }
+    return typeToFields;
+  }
+
+  private static List<String> fieldNames(GraphQLType type) {
+    return ((GraphQLFieldsContainer) type).getFieldDefinitions().stream()
+        .map(GraphQLFieldDefinition::getName)
+        .collect(Collectors.toList());
+  }
+}
@@ -76,7 +76,7 @@ public class RedactingVisitorTest {
     when(traverserContext.getVar(NodeZipper.class)).thenReturn(nodeZipper);
     when(traverserContext.getSharedContextData()).thenReturn(zippers);
 
-    when(instrumentationState.getTypeFieldPermissionVerifier()).thenReturn(typeFieldPermissionVerifier);
+    when(instrumentationState.getPermissionVerifier()).thenReturn(typeFieldPermissionVerifier);
     when(instrumentationState.getAuthzErrors()).thenReturn(graphQLErrorList);
 
     subjectUnderTest = new RedactingVisitor(instrumentationState, executionContext, authzListener,
@@ -3,14 +3,18 @@ package com.intuit.graphql.authorization.enforcement;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.intuit.graphql.authorization.config.AuthzClientConfiguration;
+import com.intuit.graphql.authorization.util.ScopeSet;
 import com.intuit.graphql.authorization.util.TestStaticResources;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLFieldsContainer;
 import graphql.schema.GraphQLSchema;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import org.apache.commons.collections4.SetUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -86,4 +90,98 @@ public class TypeAndFieldAuthorizationHolderTest {
 
   }
 
+  @Test
+  public void reusesVerifierForSameScopeCombination() {
+    TypeFieldPermissionVerifier verifier = authorizationHolder.getPermissionsVerifier(
+        new HashSet<>(Arrays.asList("Test.client2", "Test.client1")), schema);
+    TypeFieldPermissionVerifier sameScopesVerifier = authorizationHolder.getPermissionsVerifier(
+        new HashSet<>(Arrays.asList("Test.client1", "Test.client2", "Test.unknown")), schema);
+
+    assertThat(sameScopesVerifier).isSameAs(verifier);
+    assertThat(authorizationHolder.getPermissionsVerifierCacheStats().getHitCount()).isEqualTo(1);
+    assertThat(authorizationHolder.getPermissionsVerifierCacheStats().getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void disabledCacheCreatesNewVerifiers() {
+    AuthorizationHolder uncachedHolder = new AuthorizationHolder(
+        AuthzInstrumentation.getAuthorizationFactory(schema).parse(authzClientConfiguration.getQueriesByClient()), 0);
+    Set<String> scopes = new HashSet<>(Arrays.asList("Test.client2"));
+
+    assertThat(uncachedHolder.getPermissionsVerifier(scopes, schema))
+        .isNotSameAs(uncachedHolder.getPermissionsVerifier(scopes, schema));
+  }
+
+  @Test
+  public void mergesTypesGrantedByMultipleScopesIntoFlatSets() {
+    Set<String> scopes = new HashSet<>(Arrays.asList("Test.client2", "Test.client1"));
+    TypeFieldPermissionVerifier verifier = authorizationHolder.getPermissionsVerifier(scopes, schema);
+
+    Set<String> bookFields = verifier.getTypeToFieldsMap().get("Book");
+    assertThat(bookFields).isNotInstanceOf(SetUtils.SetView.class);
+    assertThat(bookFields).contains("author", "rating");
+  }
+
+  @Test
+  public void reusesVerifierForSameScopeSet() {
+    ScopeSet scopeSet = ScopeSet.of(Arrays.asList("Test.client2", "Test.client1"));
+    PermissionVerifier verifier = authorizationHolder.getPermissionVerifier(scopeSet, schema);
+
+    assertThat(authorizationHolder.getPermissionVerifier(scopeSet, schema)).isSameAs(verifier);
+    assertThat(authorizationHolder.getPermissionVerifier(scopeSet.getScopes(), schema)).isSameAs(verifier);
+    assertThat(verifier.isPermitted(bookType, ratingInfo)).isTrue();
+    assertThat(authorizationHolder.getPermissionsVerifierCacheStats().getHitCount()).isEqualTo(2);
+    assertThat(authorizationHolder.getPermissionsVerifierCacheStats().getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void sharesVerifierBetweenScopesWithSameGrants() {
+    for (PolicyEngine policyEngine : PolicyEngine.values()) {
+      AuthorizationHolder holder = new AuthorizationHolder(sameGrantsByScope(), 16, policyEngine);
+
+      PermissionVerifier verifier = holder.getPermissionVerifier(new HashSet<>(Arrays.asList("a")), schema);
+
+      assertThat(holder.getPermissionVerifier(new HashSet<>(Arrays.asList("b")), schema)).isSameAs(verifier);
+      assertThat(holder.getPermissionVerifier(new HashSet<>(Arrays.asList("a", "b")), schema)).isSameAs(verifier);
+      assertThat(holder.getPermissionVerifier(new HashSet<>(Arrays.asList("c")), schema)).isNotSameAs(verifier);
+    }
+  }
+
+  @Test
+  public void sharesRedactedSchemaBetweenScopesWithSameGrants() {
+    AuthorizationHolder holder = new AuthorizationHolder(sameGrantsByScope());
+
+    GraphQLSchema redactedSchema = holder.getRedactedSchema(new HashSet<>(Arrays.asList("a")), schema);
+
+    assertThat(holder.getRedactedSchema(new HashSet<>(Arrays.asList("b")), schema)).isSameAs(redactedSchema);
+    assertThat(holder.getRedactedSchema(new HashSet<>(Arrays.asList("c")), schema)).isNotSameAs(redactedSchema);
+  }
+
+  @Test
+  public void sharesRedactedSchemaBetweenScopesWithSameBitSetGrants() {
+    AuthorizationHolder holder = new AuthorizationHolder(sameGrantsByScope(),
+        AuthorizationHolder.DEFAULT_PERMISSIONS_VERIFIER_CACHE_SIZE, PolicyEngine.BITSET);
+
+    GraphQLSchema redactedSchema = holder.getRedactedSchema(new HashSet<>(Arrays.asList("a")), schema);
+
+    assertThat(holder.getRedactedSchema(new HashSet<>(Arrays.asList("b")), schema)).isSameAs(redactedSchema);
+    assertThat(holder.getRedactedSchema(new HashSet<>(Arrays.asList("c")), schema)).isNotSameAs(redactedSchema);
+    assertThat(holder.getRedactedSchemaCacheStats().getHitCount()).isEqualTo(1);
+  }
+
+  private Map<String, Map<String, Set<String>>> sameGrantsByScope() {
+    Map<String, Map<String, Set<String>>> scopeToType = new HashMap<>();
+    scopeToType.put("a", grants("bookById", "id"));
+    scopeToType.put("b", grants("bookById", "id"));
+    scopeToType.put("c", grants("bookById", "name"));
+    return scopeToType;
+  }
+
+  private Map<String, Set<String>> grants(String queryField, String bookField) {
+    Map<String, Set<String>> typeToFields = new HashMap<>();
+    typeToFields.put("Query", new HashSet<>(Arrays.asList(queryField)));
+    typeToFields.put("Book", new HashSet<>(Arrays.asList(bookField)));
+    return typeToFields;
+  }
+
 }
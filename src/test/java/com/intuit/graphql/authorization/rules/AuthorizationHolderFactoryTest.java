@@ -4,18 +4,28 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.intuit.graphql.authorization.config.AuthzClient;
+import com.intuit.graphql.authorization.enforcement.HelperAuthzClientConfiguration;
+import com.intuit.graphql.authorization.enforcement.HelperBuildTestSchema;
+import com.intuit.graphql.authorization.util.TestStaticResources;
 import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Test;
 
 public class AuthorizationHolderFactoryTest {
@@ -120,4 +130,135 @@ public class AuthorizationHolderFactoryTest {
 
     assertThat(result).isNotEmpty();
   }
+
+  @Test
+  public void recompilesOnlyChangedClients() {
+    final RuleParser mockRuleParser = mock(RuleParser.class);
+    when(mockRuleParser.parseRule(any(), any(InvalidFieldsCollector.class)))
+        .thenAnswer(invocation -> {
+          Map<String, Set<String>> typeToFields = new HashMap<>();
+          typeToFields.put(invocation.getArgument(0), new HashSet<>(Collections.singleton("field")));
+          return typeToFields;
+        });
+    AuthorizationHolderFactory factory = new AuthorizationHolderFactory(mockRuleParser);
+
+    Map<AuthzClient, List<String>> queriesByClient = new HashMap<>();
+    queriesByClient.put(client("unchanged"), Collections.singletonList("type1"));
+    queriesByClient.put(client("changed"), Collections.singletonList("type2"));
+    queriesByClient.put(client("removed"), Collections.singletonList("type3"));
+    CompiledRules previous = factory.compile(queriesByClient);
+    verify(mockRuleParser, times(3)).parseRule(any(), any(InvalidFieldsCollector.class));
+
+    Map<AuthzClient, List<String>> changedQueriesByClient = new HashMap<>();
+    changedQueriesByClient.put(client("unchanged"), Collections.singletonList("type1"));
+    changedQueriesByClient.put(client("changed"), Collections.singletonList("type4"));
+    changedQueriesByClient.put(client("removed"), Collections.emptyList());
+    changedQueriesByClient.put(client("added"), Collections.singletonList("type5"));
+    CompiledRules result = factory.compile(previous, changedQueriesByClient);
+
+    verify(mockRuleParser, times(5)).parseRule(any(), any(InvalidFieldsCollector.class));
+    assertThat(result.getScopeToTypeMap()).containsOnlyKeys("unchanged", "changed", "added");
+    assertThat(result.getScopeToTypeMap().get("unchanged")).isSameAs(previous.getScopeToTypeMap().get("unchanged"));
+    assertThat(result.getScopeToTypeMap().get("changed")).containsOnlyKeys("type4");
+    assertThat(result.getFingerprintsByClientId()).containsOnlyKeys("unchanged", "changed", "added");
+    assertThat(previous.getScopeToTypeMap()).containsOnlyKeys("unchanged", "changed", "removed");
+  }
+
+  @Test
+  public void parsesRulesSharedByClientsOnce() {
+    final RuleParser mockRuleParser = mock(RuleParser.class);
+    when(mockRuleParser.parseRule(any(), any(InvalidFieldsCollector.class)))
+        .thenAnswer(invocation -> {
+          Map<String, Set<String>> typeToFields = new HashMap<>();
+          typeToFields.put("type", new HashSet<>(Collections.singleton(invocation.getArgument(0))));
+          return typeToFields;
+        });
+    AuthorizationHolderFactory factory = new AuthorizationHolderFactory(mockRuleParser);
+
+    Map<AuthzClient, List<String>> queriesByClient = new HashMap<>();
+    queriesByClient.put(client("client1"), Collections.singletonList("shared"));
+    queriesByClient.put(client("client2"), Collections.singletonList("shared"));
+    queriesByClient.put(client("client3"), Arrays.asList("shared", "other"));
+    Map<String, Map<String, Set<String>>> result = factory.parse(queriesByClient);
+
+    verify(mockRuleParser, times(1)).parseRule(eq("shared"), any(InvalidFieldsCollector.class));
+    verify(mockRuleParser, times(1)).parseRule(eq("other"), any(InvalidFieldsCollector.class));
+    assertThat(result.get("client1").get("type")).containsOnly("shared")
+        .isSameAs(result.get("client2").get("type"));
+    assertThat(result.get("client3").get("type")).containsOnly("shared", "other");
+    assertThatThrownBy(() -> result.get("client1").get("type").add("field"))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void fingerprintDependsOnEveryRule() {
+    assertThat(AuthorizationHolderFactory.fingerprint(Arrays.asList("a", "b")))
+        .isEqualTo(AuthorizationHolderFactory.fingerprint(Arrays.asList("a", "b")))
+        .isNotEqualTo(AuthorizationHolderFactory.fingerprint(Arrays.asList("ab")))
+        .isNotEqualTo(AuthorizationHolderFactory.fingerprint(Arrays.asList("b", "a")));
+  }
+
+  @Test
+  public void parallelCompileMatchesSequentialCompile() {
+    GraphQLSchema schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    Map<AuthzClient, List<String>> queriesByClient = new HelperAuthzClientConfiguration().getQueriesByClient();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      CompiledRules sequential = new AuthorizationHolderFactory(new QueryRuleParser(schema))
+          .compile(queriesByClient);
+      CompiledRules parallel = new AuthorizationHolderFactory(new QueryRuleParser(schema), executor)
+          .compile(queriesByClient);
+
+      assertThat(parallel.getScopeToTypeMap()).isEqualTo(sequential.getScopeToTypeMap());
+      assertThat(parallel.getFingerprintsByClientId()).isEqualTo(sequential.getFingerprintsByClientId());
+      assertThat(parallel.getCompileTimings().getParseNanos()).isPositive();
+      assertThat(parallel.getCompileTimings().getTotalNanos()).isPositive();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void parallelCompileSkipsFailingClients() {
+    RuleParser ruleParser = mock(RuleParser.class);
+    when(ruleParser.parseRule(eq("bad-query"), any(InvalidFieldsCollector.class)))
+        .thenThrow(new RuntimeException("boom"));
+    when(ruleParser.parseRule(eq("good-query"), any(InvalidFieldsCollector.class)))
+        .thenReturn(new HashMap<>(Collections.singletonMap("type", new HashSet<>())));
+
+    Map<AuthzClient, List<String>> queriesByClient = new HashMap<>();
+    queriesByClient.put(client("bad"), Collections.singletonList("bad-query"));
+    queriesByClient.put(client("good"), Collections.singletonList("good-query"));
+
+    CompiledRules result = new AuthorizationHolderFactory(ruleParser, ForkJoinPool.commonPool())
+        .compile(queriesByClient);
+
+    assertThat(result.getScopeToTypeMap()).containsOnlyKeys("good");
+  }
+
+  @Test(timeout = 10_000)
+  public void parallelCompileFailsClientsSharingRuleThatThrowsError() {
+    RuleParser ruleParser = mock(RuleParser.class);
+    when(ruleParser.parseRule(eq("deep-query"), any(InvalidFieldsCollector.class))).thenAnswer(invocation -> {
+      Thread.sleep(50);
+      throw new StackOverflowError();
+    });
+
+    Map<AuthzClient, List<String>> queriesByClient = new HashMap<>();
+    queriesByClient.put(client("first"), Collections.singletonList("deep-query"));
+    queriesByClient.put(client("second"), Collections.singletonList("deep-query"));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      assertThatThrownBy(() -> new AuthorizationHolderFactory(ruleParser, executor).compile(queriesByClient))
+          .hasRootCauseInstanceOf(StackOverflowError.class);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static AuthzClient client(String id) {
+    AuthzClient client = new AuthzClient();
+    client.setId(id);
+    return client;
+  }
 }
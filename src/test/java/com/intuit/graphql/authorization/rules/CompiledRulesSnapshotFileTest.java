@@ -0,0 +1,147 @@
+package com.intuit.graphql.authorization.rules;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.intuit.graphql.authorization.config.AuthzClient;
+import com.intuit.graphql.authorization.enforcement.HelperAuthzClientConfiguration;
+import com.intuit.graphql.authorization.enforcement.HelperBuildTestSchema;
+import com.intuit.graphql.authorization.util.TestStaticResources;
+import graphql.schema.GraphQLSchema;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompiledRulesSnapshotFileTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private GraphQLSchema schema;
+  private Map<AuthzClient, List<String>> queriesByClient;
+  private Path path;
+
+  @Before
+  public void setUp() {
+    schema = HelperBuildTestSchema.buildSchema(TestStaticResources.TEST_SCHEMA);
+    queriesByClient = new HelperAuthzClientConfiguration().getQueriesByClient();
+    path = temporaryFolder.getRoot().toPath().resolve("compiled-rules.bin");
+  }
+
+  @Test
+  public void loadsRulesWrittenForSameSchemaAndRules() {
+    AuthorizationHolderFactory factory = spy(new AuthorizationHolderFactory(new QueryRuleParser(schema)));
+    CompiledRulesSnapshotFile snapshotFile = new CompiledRulesSnapshotFile(path);
+
+    CompiledRules compiled = snapshotFile.loadOrCompile(factory, schema, queriesByClient);
+    CompiledRules loaded = snapshotFile.loadOrCompile(factory, schema, queriesByClient);
+
+    verify(factory, times(1)).compile(queriesByClient);
+    assertThat(Files.exists(path)).isTrue();
+    assertThat(loaded.getScopeToTypeMap()).isEqualTo(compiled.getScopeToTypeMap());
+    assertThat(loaded.getFingerprintsByClientId()).isEqualTo(compiled.getFingerprintsByClientId());
+  }
+
+  @Test
+  public void recompilesWhenRulesChange() {
+    AuthorizationHolderFactory factory = spy(new AuthorizationHolderFactory(new QueryRuleParser(schema)));
+    CompiledRulesSnapshotFile snapshotFile = new CompiledRulesSnapshotFile(path);
+    snapshotFile.loadOrCompile(factory, schema, queriesByClient);
+
+    Map<AuthzClient, List<String>> changedQueriesByClient = new HashMap<>(queriesByClient);
+    AuthzClient client = new AuthzClient();
+    client.setId("added");
+    changedQueriesByClient.put(client, Collections.singletonList("query { allBooks { id } }"));
+    CompiledRules compiled = snapshotFile.loadOrCompile(factory, schema, changedQueriesByClient);
+    CompiledRules loaded = snapshotFile.loadOrCompile(factory, schema, changedQueriesByClient);
+
+    verify(factory, times(1)).compile(changedQueriesByClient);
+    assertThat(compiled.getScopeToTypeMap()).containsKey("added");
+    assertThat(loaded.getScopeToTypeMap()).isEqualTo(compiled.getScopeToTypeMap());
+  }
+
+  @Test
+  public void recompilesWhenSchemaChanges() {
+    GraphQLSchema otherSchema = HelperBuildTestSchema
+        .buildSchema(TestStaticResources.TEST_SCHEMA + "\ntype Unused { id: ID }");
+    AuthorizationHolderFactory factory = spy(new AuthorizationHolderFactory(new QueryRuleParser(schema)));
+    AuthorizationHolderFactory otherFactory = spy(new AuthorizationHolderFactory(new QueryRuleParser(otherSchema)));
+    CompiledRulesSnapshotFile snapshotFile = new CompiledRulesSnapshotFile(path);
+
+    snapshotFile.loadOrCompile(factory, schema, queriesByClient);
+    snapshotFile.loadOrCompile(otherFactory, otherSchema, queriesByClient);
+
+    verify(otherFactory, times(1)).compile(queriesByClient);
+    assertThat(CompiledRulesSnapshotFile.schemaFingerprint(otherSchema))
+        .isNotEqualTo(CompiledRulesSnapshotFile.schemaFingerprint(schema));
+  }
+
+  @Test
+  public void recompilesWhenFileIsCorrupt() throws Exception {
+    Files.write(path, new byte[]{0x47, 0x51, 0x41, 0x53, 0, 0, 0, 1, 0x7f});
+    AuthorizationHolderFactory factory = spy(new AuthorizationHolderFactory(new QueryRuleParser(schema)));
+
+    CompiledRules compiled = new CompiledRulesSnapshotFile(path).loadOrCompile(factory, schema, queriesByClient);
+
+    verify(factory, times(1)).compile(queriesByClient);
+    assertThat(compiled.getScopeToTypeMap()).isNotEmpty();
+    assertThat(Files.size(path)).isGreaterThan(9);
+  }
+
+  @Test
+  public void recompilesWhenLengthExceedsFile() throws Exception {
+    Files.write(path, ByteBuffer.allocate(12)
+        .putInt(CompiledRulesSnapshotFile.MAGIC)
+        .putInt(CompiledRulesSnapshotFile.FORMAT_VERSION)
+        .putInt(Integer.MAX_VALUE - 8)
+        .array());
+    AuthorizationHolderFactory factory = spy(new AuthorizationHolderFactory(new QueryRuleParser(schema)));
+
+    new CompiledRulesSnapshotFile(path).loadOrCompile(factory, schema, queriesByClient);
+
+    verify(factory, times(1)).compile(queriesByClient);
+  }
+
+  @Test
+  public void recompilesWhenCountExceedsFile() throws Exception {
+    CompiledRulesSnapshotFile snapshotFile = new CompiledRulesSnapshotFile(path);
+    snapshotFile.loadOrCompile(new AuthorizationHolderFactory(new QueryRuleParser(schema)), schema, queriesByClient);
+    ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(path));
+    contents.position(8);
+    for (int i = 0; i < 2; i++) {
+      int length = contents.getInt();
+      contents.position(contents.position() + length);
+    }
+    //string count of the rules
+    contents.putInt(contents.position(), Integer.MAX_VALUE);
+    Files.write(path, contents.array());
+    AuthorizationHolderFactory factory = spy(new AuthorizationHolderFactory(new QueryRuleParser(schema)));
+
+    CompiledRules compiled = snapshotFile.loadOrCompile(factory, schema, queriesByClient);
+
+    verify(factory, times(1)).compile(queriesByClient);
+    assertThat(compiled.getScopeToTypeMap()).isNotEmpty();
+  }
+
+  @Test
+  public void policyHashDoesNotDependOnClientOrder() {
+    Map<AuthzClient, List<String>> reordered = new LinkedHashMap<>();
+    queriesByClient.entrySet().stream()
+        .sorted((a, b) -> b.getKey().getId().compareTo(a.getKey().getId()))
+        .forEach(entry -> reordered.put(entry.getKey(), entry.getValue()));
+
+    assertThat(CompiledRulesSnapshotFile.policyHash(reordered))
+        .isEqualTo(CompiledRulesSnapshotFile.policyHash(queriesByClient));
+  }
+}
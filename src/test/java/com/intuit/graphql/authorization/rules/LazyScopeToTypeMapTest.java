@@ -0,0 +1,109 @@
+package com.intuit.graphql.authorization.rules;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.intuit.graphql.authorization.config.AuthzClient;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyScopeToTypeMapTest {
+
+  private RuleParser ruleParser;
+  private Map<AuthzClient, List<String>> queriesByClient;
+
+  @Before
+  public void init() {
+    ruleParser = mock(RuleParser.class);
+    when(ruleParser.parseRule(any(), any(InvalidFieldsCollector.class)))
+        .thenAnswer(invocation -> {
+          Map<String, Set<String>> typeToFields = new HashMap<>();
+          typeToFields.put(invocation.getArgument(0), new HashSet<>(Collections.singleton("field")));
+          return typeToFields;
+        });
+    queriesByClient = new HashMap<>();
+    queriesByClient.put(client("client1"), Collections.singletonList("type1"));
+    queriesByClient.put(client("client2"), Collections.singletonList("type2"));
+    queriesByClient.put(client("client3"), Collections.emptyList());
+  }
+
+  @Test
+  public void compilesClientOnFirstLookup() {
+    CompiledRules compiledRules = new AuthorizationHolderFactory(ruleParser).compileLazily(queriesByClient, 10);
+    Map<String, Map<String, Set<String>>> scopeToTypeMap = compiledRules.getScopeToTypeMap();
+
+    assertThat(scopeToTypeMap).isInstanceOf(LazyScopeToTypeMap.class);
+    assertThat(scopeToTypeMap.containsKey("client1")).isTrue();
+    assertThat(scopeToTypeMap.containsKey("client3")).isFalse();
+    verify(ruleParser, never()).parseRule(any(), any(InvalidFieldsCollector.class));
+
+    assertThat(scopeToTypeMap.get("client1")).containsOnlyKeys("type1");
+    assertThat(scopeToTypeMap.get("client1")).isSameAs(scopeToTypeMap.get("client1"));
+    assertThat(scopeToTypeMap.get("unknown")).isNull();
+    verify(ruleParser, times(1)).parseRule(eq("type1"), any(InvalidFieldsCollector.class));
+    verify(ruleParser, never()).parseRule(eq("type2"), any(InvalidFieldsCollector.class));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedClients() {
+    LazyScopeToTypeMap scopeToTypeMap = (LazyScopeToTypeMap) new AuthorizationHolderFactory(ruleParser)
+        .compileLazily(queriesByClient, 1).getScopeToTypeMap();
+
+    scopeToTypeMap.get("client1");
+    scopeToTypeMap.get("client2");
+    scopeToTypeMap.get("client1");
+
+    verify(ruleParser, times(2)).parseRule(eq("type1"), any(InvalidFieldsCollector.class));
+    assertThat(scopeToTypeMap.stats().getEvictionCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void recompilesChangedClientsLazily() {
+    AuthorizationHolderFactory factory = new AuthorizationHolderFactory(ruleParser);
+    CompiledRules previous = factory.compileLazily(queriesByClient, 10);
+
+    Map<AuthzClient, List<String>> changedQueriesByClient = new HashMap<>();
+    changedQueriesByClient.put(client("client1"), Collections.emptyList());
+    changedQueriesByClient.put(client("client2"), Collections.singletonList("type4"));
+    CompiledRules result = factory.compile(previous, changedQueriesByClient);
+
+    assertThat(result.getScopeToTypeMap()).isInstanceOf(LazyScopeToTypeMap.class);
+    assertThat(result.getScopeToTypeMap().keySet()).containsOnly("client2");
+    assertThat(result.getScopeToTypeMap().get("client2")).containsOnlyKeys("type4");
+    verify(ruleParser, never()).parseRule(eq("type2"), any(InvalidFieldsCollector.class));
+  }
+
+  @Test
+  public void keepsCompiledRulesOfUnchangedClients() {
+    AuthorizationHolderFactory factory = new AuthorizationHolderFactory(ruleParser);
+    CompiledRules previous = factory.compileLazily(queriesByClient, 10);
+    previous.getScopeToTypeMap().get("client1");
+    previous.getScopeToTypeMap().get("client2");
+
+    CompiledRules result = factory.compile(previous,
+        Collections.singletonMap(client("client2"), Collections.singletonList("type4")));
+
+    assertThat(result.getScopeToTypeMap().get("client1")).containsOnlyKeys("type1");
+    assertThat(result.getScopeToTypeMap().get("client2")).containsOnlyKeys("type4");
+    verify(ruleParser, times(1)).parseRule(eq("type1"), any(InvalidFieldsCollector.class));
+    assertThat(((LazyScopeToTypeMap) result.getScopeToTypeMap()).stats().getHitCount()).isEqualTo(1);
+  }
+
+  private static AuthzClient client(String id) {
+    AuthzClient client = new AuthzClient();
+    client.setId(id);
+    return client;
+  }
+}
@@ -0,0 +1,164 @@
+package com.intuit.graphql.authorization.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class BoundedCacheTest {
+
+  @Test
+  public void returnsCachedValueAndCountsHits() {
+    BoundedCache<String, String> cache = new BoundedCache<>(10);
+    AtomicInteger loads = new AtomicInteger();
+
+    assertThat(cache.get("a", key -> key + loads.incrementAndGet())).isEqualTo("a1");
+    assertThat(cache.get("a", key -> key + loads.incrementAndGet())).isEqualTo("a1");
+
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(cache.stats().getHitCount()).isEqualTo(1);
+    assertThat(cache.stats().getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedEntry() throws InterruptedException {
+    BoundedCache<String, String> cache = new BoundedCache<>(2);
+    cache.get("a", key -> key);
+    cache.get("b", key -> key);
+    TimeUnit.MILLISECONDS.sleep(1);
+    cache.get("a", key -> key);
+    cache.get("c", key -> key);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.stats().getEvictionCount()).isEqualTo(1);
+    assertThat(cache.get("a", key -> "reloaded")).isEqualTo("a");
+    assertThat(cache.get("b", key -> "reloaded")).isEqualTo("reloaded");
+  }
+
+  @Test
+  public void zeroSizeDisablesCaching() {
+    BoundedCache<String, String> cache = new BoundedCache<>(0);
+    AtomicInteger loads = new AtomicInteger();
+    cache.get("a", key -> key + loads.incrementAndGet());
+    cache.get("a", key -> key + loads.incrementAndGet());
+
+    assertThat(loads.get()).isEqualTo(2);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void failedLoadIsNotCached() {
+    BoundedCache<String, String> cache = new BoundedCache<>(10);
+    assertThatThrownBy(() -> cache.get("a", key -> {
+      throw new IllegalStateException("boom");
+    })).isInstanceOf(IllegalStateException.class);
+
+    assertThat(cache.get("a", key -> key)).isEqualTo("a");
+  }
+
+  @Test
+  public void concurrentMissesLoadOnce() throws Exception {
+    BoundedCache<String, String> cache = new BoundedCache<>(10);
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<String> first = executor.submit(() -> cache.get("a", key -> {
+        loads.incrementAndGet();
+        try {
+          loading.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return key;
+      }));
+      while (cache.size() == 0) {
+        Thread.yield();
+      }
+      Future<String> second = executor.submit(() -> cache.get("a", key -> key + loads.incrementAndGet()));
+      loading.countDown();
+
+      assertThat(first.get()).isEqualTo("a");
+      assertThat(second.get()).isEqualTo("a");
+      assertThat(loads.get()).isEqualTo(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void concurrentHitsAndEvictionsStayConsistent() throws Exception {
+    BoundedCache<Integer, Integer> cache = new BoundedCache<>(16);
+    int threads = 8;
+    int callsPerThread = 20_000;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          boolean consistent = true;
+          for (int i = 0; i < callsPerThread; i++) {
+            // mostly hits on a few hot keys, with misses on cold keys evicting entries meanwhile
+            int key = ThreadLocalRandom.current().nextInt(10) == 0 ? 16 + ThreadLocalRandom.current().nextInt(64)
+                : ThreadLocalRandom.current().nextInt(8);
+            consistent &= cache.get(key, k -> k) == key;
+          }
+          return consistent;
+        }));
+      }
+      start.countDown();
+      for (Future<Boolean> result : results) {
+        assertThat(result.get(30, TimeUnit.SECONDS)).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    CacheStats stats = cache.stats();
+    assertThat(stats.getHitCount() + stats.getMissCount()).isEqualTo((long) threads * callsPerThread);
+    assertThat(stats.getHitCount()).isPositive();
+    assertThat(stats.getEvictionCount()).isPositive();
+    assertThat(cache.size()).isLessThanOrEqualTo(16);
+    assertThat(cache.snapshot()).hasSize(cache.size());
+  }
+
+  @Test
+  public void recursiveLoadOfSameKeyIsRejected() {
+    BoundedCache<String, String> cache = new BoundedCache<>(10);
+
+    assertThatThrownBy(() -> cache.get("a", key -> cache.get("a", inner -> inner)))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("Recursive load");
+    assertThat(cache.get("a", key -> cache.get("b", inner -> inner))).isEqualTo("b");
+  }
+
+  @Test
+  public void evictsInAccessOrder() {
+    BoundedCache<Integer, Integer> cache = new BoundedCache<>(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.get(i, key -> key);
+      cache.get(0, key -> -1);
+    }
+
+    assertThat(cache.size()).isEqualTo(100);
+    assertThat(cache.stats().getEvictionCount()).isEqualTo(900);
+    assertThat(cache.get(0, key -> -1)).isZero();
+    assertThat(cache.get(899, key -> -1)).isEqualTo(-1);
+  }
+
+  @Test
+  public void negativeSizeIsRejected() {
+    assertThatThrownBy(() -> new BoundedCache<>(-1)).isInstanceOf(IllegalArgumentException.class);
+  }
+}
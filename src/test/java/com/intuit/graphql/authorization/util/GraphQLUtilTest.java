@@ -3,15 +3,21 @@ package com.intuit.graphql.authorization.util;
 
 import graphql.Scalars;
 import graphql.introspection.Introspection;
+import graphql.language.Document;
 import graphql.language.Field;
+import graphql.language.FragmentDefinition;
 import graphql.language.OperationDefinition;
 import graphql.language.OperationDefinition.Operation;
 import graphql.language.SelectionSet;
+import graphql.parser.Parser;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLList;
 import graphql.schema.GraphQLNonNull;
 import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
@@ -90,4 +96,20 @@ public class GraphQLUtilTest {
     Assertions.assertThat(GraphQLUtil.isNotEmpty(SelectionSet.newSelectionSet().build())).isFalse();
     Assertions.assertThat(GraphQLUtil.isNotEmpty(null)).isFalse();
   }
+
+  @Test
+  public void getReachableFragmentsFollowsNestedSpreads() {
+    Document document = new Parser().parseDocument("{ book { ...bookFields ... on Book { ...ratingFields } } }"
+        + "fragment bookFields on Book { id author { ...authorFields } }"
+        + "fragment authorFields on Author { firstName ...bookFields }"
+        + "fragment ratingFields on Book { rating { stars } }"
+        + "fragment unused on Book { id }");
+    Map<String, FragmentDefinition> fragmentsByName = document.getDefinitionsOfType(FragmentDefinition.class)
+        .stream()
+        .collect(Collectors.toMap(FragmentDefinition::getName, Function.identity()));
+    OperationDefinition operation = document.getDefinitionsOfType(OperationDefinition.class).get(0);
+
+    Assertions.assertThat(GraphQLUtil.getReachableFragments(operation.getSelectionSet(), fragmentsByName))
+        .containsOnlyKeys("bookFields", "authorFields", "ratingFields");
+  }
 }
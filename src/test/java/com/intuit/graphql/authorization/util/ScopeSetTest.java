@@ -0,0 +1,60 @@
+package com.intuit.graphql.authorization.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Test;
+
+public class ScopeSetTest {
+
+  @Test
+  public void equalScopesAreInterned() {
+    ScopeSet scopeSet = ScopeSet.of(new HashSet<>(Arrays.asList("a", "b")));
+    ScopeSet sameScopes = ScopeSet.of(Arrays.asList("b", "a", "b"));
+
+    assertThat(sameScopes).isSameAs(scopeSet);
+    assertThat(sameScopes.getId()).isEqualTo(scopeSet.getId());
+    assertThat(scopeSet.getScopes()).containsExactlyInAnyOrder("a", "b");
+  }
+
+  @Test
+  public void differentScopesHaveDifferentIds() {
+    assertThat(ScopeSet.of(Collections.singleton("a")).getId())
+        .isNotEqualTo(ScopeSet.of(Collections.singleton("c")).getId());
+  }
+
+  @Test
+  public void emptyScopeSet() {
+    assertThat(ScopeSet.of(Collections.emptyList())).isSameAs(ScopeSet.empty());
+    assertThat(ScopeSet.empty().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void copiesAreNotInternedButEqual() {
+    ScopeSet copy = ScopeSet.copyOf(Arrays.asList("x", "y"));
+    ScopeSet otherCopy = ScopeSet.copyOf(new HashSet<>(Arrays.asList("y", "x")));
+
+    assertThat(copy).isNotSameAs(otherCopy).isEqualTo(otherCopy).hasSameHashCodeAs(otherCopy);
+    assertThat(copy.isInterned()).isFalse();
+    assertThat(copy.getId()).isEqualTo(-1);
+    assertThat(ScopeSet.of(Arrays.asList("x", "y"))).isEqualTo(copy);
+    assertThat(copy).isNotEqualTo(ScopeSet.copyOf(Collections.singleton("x")));
+  }
+
+  @Test
+  public void copyOfInternedScopesReturnsInternedHandle() {
+    ScopeSet interned = ScopeSet.of(Collections.singleton("interned"));
+
+    assertThat(ScopeSet.copyOf(Collections.singleton("interned"))).isSameAs(interned);
+    assertThat(ScopeSet.copyOf(Collections.emptySet())).isSameAs(ScopeSet.empty());
+  }
+
+  @Test
+  public void scopesAreImmutable() {
+    ScopeSet scopeSet = ScopeSet.of(Collections.singleton("a"));
+    assertThatThrownBy(() -> scopeSet.getScopes().add("b")).isInstanceOf(UnsupportedOperationException.class);
+  }
+}